@@ -0,0 +1,25 @@
+/**
+ * BenchmarkMap.java
+ * This class measures creating the territories of a new game on the standard map.
+ */
+
+package benchmark;
+
+import common.CommonMapCreation;
+import common.CommonTerritory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkMap {
+    @Benchmark
+    public Map<String, CommonTerritory> generateMap() {
+        return CommonMapCreation.generateMap();
+    }
+}
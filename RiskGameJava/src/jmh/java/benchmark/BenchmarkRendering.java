@@ -0,0 +1,49 @@
+/**
+ * BenchmarkRendering.java
+ * This class measures painting the game board of a running game.
+ * The board is painted into an off-screen image at its preferred size, so the
+ * benchmark runs headless and measures drawing only, not the screen.
+ */
+
+package benchmark;
+
+import client.ClientBoard;
+import org.openjdk.jmh.annotations.*;
+import server.ServerManager;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BenchmarkRendering {
+    private ClientBoard board;      // Board showing a freshly dealt game
+    private BufferedImage image;    // Off-screen target
+
+    @Setup
+    public void setup() {
+        board = new ClientBoard(territory -> {
+        });
+        board.setSize(board.getPreferredSize());
+        board.updateGameState(ServerManager.initializeGame(List.of("alice", "bob", "carol"), new SplittableRandom(1)));
+        image = new BufferedImage(board.getWidth(), board.getHeight(), BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Benchmark
+    public BufferedImage paintComponent() {
+        Graphics2D g = image.createGraphics();
+        try {
+            board.paint(g);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * BenchmarkRules.java
+ * This class measures the rules code that runs on every move.
+ * Reinforcements are measured both with the per-continent counters of CommonState
+ * and with the per-continent stream over the territory map they replaced, so the
+ * two can be compared in one run. Attacks are measured as one round of dice including the state update,
+ * and battle odds as the lookup DialogAttack makes whenever the selection changes.
+ */
+
+package benchmark;
+
+import common.CommonBattleOdds;
+import common.CommonEvent;
+import common.CommonPlayer;
+import common.CommonRules;
+import common.CommonState;
+import common.CommonTopology;
+import org.openjdk.jmh.annotations.*;
+import server.ServerManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkRules {
+    private CommonState state;                                  // State of a two-player game
+    private final List<CommonEvent> events = new ArrayList<>(); // Reused event list
+    private final SplittableRandom rng = new SplittableRandom(1); // Source of the dice
+    private int player;                                         // Player whose turn it is
+    private int from;                                           // Attacking territory
+    private int to;                                             // Defending territory
+
+    @Setup
+    public void setup() {
+        state = ServerManager.initializeGame(List.of("alice", "bob"), new SplittableRandom(1));
+        player = state.getCurrentTurn();
+
+        // Find a border to attack across
+        CommonTopology topology = state.getTopology();
+        search:
+        for (int t = 0; t < topology.getTerritoryCount(); t++) {
+            if (!state.ownsTerritory(player, t)) {
+                continue;
+            }
+            for (int neighbour : topology.getAdjacent(t)) {
+                if (!state.ownsTerritory(player, neighbour)) {
+                    from = t;
+                    to = neighbour;
+                    break search;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int calculateReinforcements() {
+        return state.calculateReinforcements(player);
+    }
+
+    @Benchmark
+    public int calculateReinforcementsScan() {
+        return reinforcementsByScan(state, player);
+    }
+
+    @Benchmark
+    public List<CommonEvent> attack() {
+        // Refill both territories so every call rolls three dice against two
+        state.setArmies(from, 100);
+        state.setArmies(to, 100);
+        events.clear();
+        CommonRules.attack(state, player, from, to, CommonRules.MAX_ATTACK_DICE, rng, events);
+        return events;
+    }
+
+    @Benchmark
+    public double battleOdds() {
+        return CommonBattleOdds.captureProbability(30, 20, CommonRules.MAX_ATTACK_DICE);
+    }
+
+    /**
+     * Calculates reinforcements the way CommonState did before the continent counters
+     * For every continent, all territories of the name-keyed territory map are streamed
+     * to check whether the player owns the whole continent.
+     *
+     * @param state Game state
+     * @param id Id of the player
+     * @return Number of reinforcement armies
+     */
+    private static int reinforcementsByScan(CommonState state, int id) {
+        CommonTopology topology = state.getTopology();
+        CommonPlayer player = state.getPlayer(id);
+        String playerName = player.getName();
+        int base = Math.max(3, player.getTerritoryCount() / 3);
+        int bonus = 0;
+        for (int c = 0; c < topology.getContinentCount(); c++) {
+            String continent = topology.getContinentName(c);
+            boolean ownsAll = state.getTerritories().values().stream()
+                    .filter(t -> t.getContinent().equals(continent))
+                    .allMatch(t -> playerName.equals(t.getOwner()));
+            if (ownsAll) {
+                bonus += topology.getContinentBonus(c);
+            }
+        }
+        return base + bonus;
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * BenchmarkSerialization.java
+ * This class measures how fast a full game state is turned into a frame payload
+ * and back, for every codec the server can be configured with.
+ */
+
+package benchmark;
+
+import common.CommonCodec;
+import common.CommonBinaryCodec;
+import common.CommonSerialCodec;
+import common.CommonState;
+import org.openjdk.jmh.annotations.*;
+import server.ServerManager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkSerialization {
+    /** Codec under test, as selected by the risk.codec property */
+    @Param({"binary", "serial"})
+    public String codecName;
+
+    private CommonCodec codec;      // Codec under test
+    private CommonState state;      // State of a freshly dealt game
+    private byte[] encoded;         // The state, already encoded
+
+    @Setup
+    public void setup() throws IOException {
+        codec = "serial".equals(codecName) ? CommonSerialCodec.INSTANCE : CommonBinaryCodec.INSTANCE;
+        state = ServerManager.initializeGame(List.of("alice", "bob", "carol"), new SplittableRandom(1));
+        encoded = codec.encode(state);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return codec.encode(state);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return codec.decode(encoded, 0, encoded.length);
+    }
+
+    @Benchmark
+    public Object roundTrip() throws IOException {
+        byte[] bytes = codec.encode(state);
+        return codec.decode(bytes, 0, bytes.length);
+    }
+}
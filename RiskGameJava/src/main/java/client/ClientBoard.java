@@ -7,7 +7,9 @@
 
 package client;
 
+import client.ui.UIConstants;
 import common.CommonState;
+import common.CommonStateDelta;
 import common.CommonTerritory;
 
 import javax.imageio.ImageIO;
@@ -171,17 +173,47 @@ public class ClientBoard extends JPanel {
             int armies = t.getArmies();
 
             if (countryPositions.containsKey(name)) {
-                String color = "GRAY";
-                if (owner != null && gameState.getPlayers().containsKey(owner)) {
-                    color = gameState.getPlayers().get(owner).getColor();
-                }
-                countryOwners.put(name, color);
+                countryOwners.put(name, ownerColor(gameState, owner));
                 countryArmies.put(name, armies);
             }
         }
         repaint();
     }
 
+    /**
+     * Applies a game state delta to the board
+     * Only the territories listed in the delta are updated
+     * 
+     * @param gameState The game state the delta was applied to
+     * @param delta The changes to show
+     */
+    public void applyDelta(CommonState gameState, CommonStateDelta delta) {
+        for (CommonStateDelta.TerritoryChange change : delta.getTerritories()) {
+            String name = gameState.getTopology().getTerritoryName(change.territory());
+            if (countryPositions.containsKey(name)) {
+                countryOwners.put(name, ownerColor(gameState, gameState.getTerritory(change.territory()).getOwner()));
+                countryArmies.put(name, change.armies());
+            }
+        }
+        if (!delta.getTerritories().isEmpty()) {
+            repaint();
+        }
+    }
+
+    /**
+     * Gets the color name of a territory owner
+     * 
+     * @param gameState The current game state
+     * @param owner Name of the owner, or null
+     * @return The owner's color, or GRAY for unowned territories
+     */
+    private String ownerColor(CommonState gameState, String owner) {
+        if (owner != null && gameState.getPlayers().containsKey(owner)) {
+            return gameState.getPlayers().get(owner).getColor();
+        }
+        return "GRAY";
+    }
+
     /**
      * Paints the game board
      * Draws the map, territories, armies, and territory names
@@ -211,11 +243,7 @@ public class ClientBoard extends JPanel {
 
             // Set territory color based on owner
             String ownerColor = countryOwners.get(name);
-            Color color = switch (ownerColor != null ? ownerColor.toUpperCase() : "") {
-                case "RED" -> Color.RED;
-                case "BLUE" -> Color.BLUE;
-                default -> Color.GRAY;
-            };
+            Color color = UIConstants.Colors.forPlayer(ownerColor, Color.GRAY);
 
             // Draw territory circle
             g2.setColor(color);
@@ -0,0 +1,178 @@
+/**
+ * ClientBot.java
+ * This class is a headless player that drives a ClientGame without any Swing code.
+ * Its moves are chosen by a CommonBot from the state it last received. It sends
+ * the next move only once the state update caused by the previous one arrived, and
+ * records the round trip of every move. When its game is over the bot reconnects
+ * and joins a new one.
+ */
+
+package client;
+
+import common.CommonBot;
+import common.CommonMessages;
+import common.CommonState;
+
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+public class ClientBot implements ClientMessageListener {
+    private final Supplier<ClientConnection> connector;    // Opens a new connection to the server
+    private final String name;                  // Player name sent with JOIN
+    private final ClientBotStats stats;         // Shared measurements
+    private final CommonBot bot;                // Chooses the moves
+
+    private ClientGame game;                    // Current connection
+    private CommonState state;                  // Last received game state
+    private long sentAt;                        // Send time of the unanswered move, or 0
+    private long lastMoveAt;                    // Send time of the last move
+    private boolean awaitingState;              // Whether the last move's state update is outstanding
+
+    /**
+     * Constructor for a ClientBot playing over TCP
+     * 
+     * @param host Server address
+     * @param port Server port
+     * @param name Player name
+     * @param scripted true to always take the first legal move, false to choose at random
+     * @param stats Measurements shared by all bots
+     * @param seed Seed of the bot's move choices
+     */
+    public ClientBot(String host, int port, String name, boolean scripted, ClientBotStats stats, long seed) {
+        this(() -> new ClientSocketConnection(host, port), name, scripted, stats, seed);
+    }
+
+    /**
+     * Constructor for a ClientBot playing over any kind of connection
+     * 
+     * @param connector Opens a new connection to the server, once per game
+     * @param name Player name
+     * @param scripted true to always take the first legal move, false to choose at random
+     * @param stats Measurements shared by all bots
+     * @param seed Seed of the bot's move choices
+     */
+    public ClientBot(Supplier<ClientConnection> connector, String name, boolean scripted, ClientBotStats stats, long seed) {
+        this.connector = connector;
+        this.name = name;
+        this.stats = stats;
+        this.bot = new CommonBot(scripted, new SplittableRandom(seed));
+    }
+
+    /**
+     * Connects to the server and joins the matchmaking queue
+     * 
+     * @return true if the bot connected
+     */
+    public synchronized boolean connect() {
+        state = null;
+        sentAt = 0;
+        awaitingState = false;
+        bot.reset();
+        game = new ClientGame(connector.get(), this);
+        boolean connected = game.isConnected();
+        stats.connection(connected);
+        if (connected) {
+            game.sendMove(new CommonMessages(CommonMessages.Type.JOIN, name));
+        }
+        return connected;
+    }
+
+    /**
+     * Closes the bot's connection
+     */
+    public synchronized void disconnect() {
+        if (game != null) {
+            game.close();
+        }
+    }
+
+    /**
+     * Gives up on a move the server has not answered for too long and plays on
+     * 
+     * @param now Current time from System.nanoTime()
+     * @param timeoutNanos Time after which a move counts as stalled
+     */
+    public synchronized void checkStalled(long now, long timeoutNanos) {
+        if (awaitingState && now - lastMoveAt > timeoutNanos) {
+            stats.stalled();
+            sentAt = 0;
+            awaitingState = false;
+            play();
+        }
+    }
+
+    @Override
+    public synchronized void onChatMessage(String message) {
+        responded();
+    }
+
+    @Override
+    public synchronized void onGameStateReceived(CommonState gameState) {
+        responded();
+        if (gameState == null) {
+            return;
+        }
+        state = gameState;
+        awaitingState = false;
+        play();
+    }
+
+    @Override
+    public synchronized void onVictory(String message) {
+        gameOver(true);
+    }
+
+    @Override
+    public synchronized void onDefeat(String message) {
+        gameOver(false);
+    }
+
+    /**
+     * Records the round trip of the unanswered move, if any
+     */
+    private void responded() {
+        if (sentAt != 0) {
+            stats.responseReceived(System.nanoTime() - sentAt);
+            sentAt = 0;
+        }
+    }
+
+    /**
+     * Leaves a finished game and joins a new one
+     * 
+     * @param won Whether the bot won
+     */
+    private void gameOver(boolean won) {
+        responded();
+        stats.gameEnded(won);
+        game.close();
+        connect();
+    }
+
+    /**
+     * Sends the bot's next move if it is the bot's turn
+     */
+    private void play() {
+        if (state == null || awaitingState || !name.equals(state.getCurrentTurnPlayer())) {
+            return;
+        }
+        int me = state.indexOfPlayer(name);
+        if (me < 0) {
+            return;
+        }
+        send(bot.nextMove(state, me));
+    }
+
+    /**
+     * Sends a move and starts timing its round trip
+     * 
+     * @param move The move to send
+     */
+    private void send(CommonMessages move) {
+        awaitingState = true;
+        lastMoveAt = System.nanoTime();
+        sentAt = lastMoveAt;
+        stats.moveSent();
+        game.sendMove(move);
+    }
+}
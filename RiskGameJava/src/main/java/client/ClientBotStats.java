@@ -0,0 +1,189 @@
+/**
+ * ClientBotStats.java
+ * This class collects the measurements of a bot load test.
+ * All bots record into one instance from their own listening threads, so every
+ * counter is lock-free. Round-trip latencies go into a log-linear histogram with
+ * eight buckets per power of two, which keeps percentiles within 12.5%.
+ */
+
+package client;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ClientBotStats {
+    /** Number of histogram buckets, enough for every positive long */
+    private static final int BUCKETS = 512;
+
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);  // Round trips per bucket, in microseconds
+    private final LongAdder moves = new LongAdder();        // Moves sent
+    private final LongAdder responses = new LongAdder();    // Moves answered by the server
+    private final LongAdder stalls = new LongAdder();       // Moves the server never answered
+    private final LongAdder connected = new LongAdder();    // Connections opened
+    private final LongAdder failed = new LongAdder();       // Connections that could not be opened
+    private final LongAdder gamesWon = new LongAdder();     // Games a bot won
+    private final LongAdder gamesLost = new LongAdder();    // Games a bot lost
+
+    /**
+     * Records that a bot sent a move
+     */
+    void moveSent() {
+        moves.increment();
+    }
+
+    /**
+     * Records the round trip of an answered move
+     * 
+     * @param nanos Time from sending the move to the first frame received after it
+     */
+    void responseReceived(long nanos) {
+        responses.increment();
+        latencies.incrementAndGet(bucketOf(Math.max(0, nanos / 1000)));
+    }
+
+    /**
+     * Records a move the server did not answer in time
+     */
+    void stalled() {
+        stalls.increment();
+    }
+
+    /**
+     * Records the outcome of opening a connection
+     * 
+     * @param success Whether the bot connected
+     */
+    void connection(boolean success) {
+        (success ? connected : failed).increment();
+    }
+
+    /**
+     * Records the end of a game for one bot
+     * 
+     * @param won Whether the bot won
+     */
+    void gameEnded(boolean won) {
+        (won ? gamesWon : gamesLost).increment();
+    }
+
+    /**
+     * Gets the number of moves sent
+     * 
+     * @return Moves sent
+     */
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * Gets the number of moves the server answered
+     * 
+     * @return Answered moves
+     */
+    public long getResponses() {
+        return responses.sum();
+    }
+
+    /**
+     * Gets the number of moves the server did not answer in time
+     * 
+     * @return Stalled moves
+     */
+    public long getStalls() {
+        return stalls.sum();
+    }
+
+    /**
+     * Gets the number of connections opened
+     * 
+     * @return Opened connections
+     */
+    public long getConnected() {
+        return connected.sum();
+    }
+
+    /**
+     * Gets the number of connections that could not be opened
+     * 
+     * @return Failed connections
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Gets the number of games won by a bot
+     * 
+     * @return Games won
+     */
+    public long getGamesWon() {
+        return gamesWon.sum();
+    }
+
+    /**
+     * Gets the number of games lost by a bot
+     * 
+     * @return Games lost
+     */
+    public long getGamesLost() {
+        return gamesLost.sum();
+    }
+
+    /**
+     * Gets a percentile of the round-trip latency
+     * 
+     * @param percentile Percentile between 0 and 100
+     * @return Upper bound of the latency bucket holding the percentile, in milliseconds
+     */
+    public double getLatencyMillis(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = latencies.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) {
+                return upperBoundOf(i) / 1000.0;
+            }
+        }
+        return upperBoundOf(BUCKETS - 1) / 1000.0;
+    }
+
+    /**
+     * Gets the histogram bucket of a latency
+     * Values below 8 have a bucket each; above, each power of two is split into eight buckets
+     * 
+     * @param micros Latency in microseconds
+     * @return Bucket index
+     */
+    private static int bucketOf(long micros) {
+        if (micros < 8) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - 3)) & 7;
+        return (exponent - 2) * 8 + sub;
+    }
+
+    /**
+     * Gets the largest latency that falls into a bucket
+     * 
+     * @param bucket Bucket index
+     * @return Upper bound in microseconds
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < 8) {
+            return bucket;
+        }
+        int exponent = bucket / 8 + 2;
+        long lower = (8L + bucket % 8) << (exponent - 3);
+        return lower + (1L << (exponent - 3)) - 1;
+    }
+}
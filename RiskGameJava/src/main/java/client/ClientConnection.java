@@ -0,0 +1,60 @@
+/**
+ * ClientConnection.java
+ * This interface represents the client's connection to the game server.
+ * ClientGame only deals with decoded messages, so the same game code runs over a
+ * TCP socket or over an in-memory loopback inside the server's JVM.
+ */
+
+package client;
+
+import common.CommonMessages;
+
+import java.io.IOException;
+
+public interface ClientConnection {
+    /**
+     * Callback interface receiving the decoded traffic of a connection
+     */
+    interface Listener {
+        /**
+         * Called for every object decoded from the connection, in arrival order
+         * 
+         * @param message The decoded object
+         */
+        void onMessage(Object message);
+
+        /**
+         * Called once when the connection is closed by the server or fails
+         * 
+         * @param reason Description of why the connection ended
+         */
+        void onDisconnect(String reason);
+    }
+
+    /**
+     * Starts delivering incoming messages to the given listener
+     * 
+     * @param listener Receiver of the connection's messages
+     */
+    void open(Listener listener);
+
+    /**
+     * Sends a move or message to the server
+     * 
+     * @param move The message to send
+     */
+    void send(CommonMessages move) throws IOException;
+
+    /**
+     * Checks whether the connection is established and not closed
+     * 
+     * @return true if the client is connected
+     */
+    boolean isConnected();
+
+    /**
+     * Closes the connection
+     * The listener is not notified of a close requested by the client
+     */
+    void close();
+}
@@ -8,6 +8,7 @@
 package client;
 
 import common.CommonState;
+import common.CommonStateDelta;
 import common.CommonMessages;
 import common.CommonPlayer;
 import common.CommonTerritory;
@@ -221,12 +222,22 @@ public class ClientFunctions implements ClientMessageListener {
 
     /**
      * Handles game state updates from the server
-     * Updates UI components with new game state information
+     * Updates UI components with new game state information on the event dispatch thread
      * 
      * @param gameState The new game state received from the server
      */
     @Override
     public void onGameStateReceived(CommonState gameState) {
+        SwingUtilities.invokeLater(() -> showGameState(gameState));
+    }
+
+    /**
+     * Shows a new game state in all UI components
+     * Must run on the event dispatch thread
+     * 
+     * @param gameState The new game state
+     */
+    private void showGameState(CommonState gameState) {
         if (waitingDialog != null && waitingDialog.isVisible()) {
             waitingDialog.setVisible(false);
             waitingDialog.dispose();
@@ -235,11 +246,37 @@ public class ClientFunctions implements ClientMessageListener {
         System.out.println("Game state updated.");
         this.currentGameState = gameState;
         boardPanel.updateGameState(gameState);
+        updatePanels(gameState);
+    }
+
+    /**
+     * Handles a game state delta from the server
+     * The delta is already applied to the state; only the changed territories are redrawn,
+     * on the event dispatch thread
+     * 
+     * @param gameState The updated game state
+     * @param delta The changes that were applied
+     */
+    @Override
+    public void onGameStateDelta(CommonState gameState, CommonStateDelta delta) {
+        SwingUtilities.invokeLater(() -> {
+            this.currentGameState = gameState;
+            boardPanel.applyDelta(gameState, delta);
+            updatePanels(gameState);
+        });
+    }
+
+    /**
+     * Updates the header, action buttons and player info from the game state
+     * 
+     * @param gameState The current game state
+     */
+    private void updatePanels(CommonState gameState) {
         String currentTurn = gameState.getCurrentTurnPlayer();
         CommonPlayer me = gameState.getPlayers().get(currentPlayerName);
         boolean isMyTurn = currentPlayerName.equals(currentTurn);
         int myRemainingArmies = me.getAvailableArmies();
-        int myTerritories = me.getTerritories().size();
+        int myTerritories = me.getTerritoryCount();
 
         headerPanel.updateTurnPlayer(currentTurn, isMyTurn);
         actionButtonsPanel.updateButtonStates(isMyTurn && myRemainingArmies == 0);
@@ -1,47 +1,65 @@
 /**
  * ClientGame.java
- * This class handles the client-side networking and communication with the game server.
- * It manages the socket connection, message sending/receiving, and game state updates.
+ * This class handles the client-side communication with the game server.
+ * It sends moves and turns received messages and game state updates into listener
+ * callbacks, over a TCP socket or any other ClientConnection.
+ * Deltas are applied on the connection's thread to a state only this class uses;
+ * listeners get a copy of it, which they may keep and read on any thread.
  */
 
 package client;
 
 import common.CommonState;
+import common.CommonStateDelta;
 import common.CommonMessages;
+import common.CommonTopology;
 
-import java.io.*;
-import java.net.Socket;
+import java.io.IOException;
 
-public class ClientGame {
-    // Network communication components
-    private Socket socket;              // Socket connection to the server
-    private ObjectOutputStream out;     // Stream for sending objects to server
-    private ObjectInputStream in;       // Stream for receiving objects from server
-
-    private ClientMessageListener listener;  // Callback interface for game events
+public class ClientGame implements ClientConnection.Listener {
+    private final ClientConnection connection;  // Connection to the server
+    private ClientMessageListener listener;     // Callback interface for game events
+    private CommonState currentState;           // Last full state, kept up to date by deltas
+    private boolean resyncing;                  // Whether a keyframe was asked for after a failed delta
 
     /**
      * Constructor for ClientGame
-     * Establishes connection to the game server and initializes communication streams
+     * Establishes a socket connection to the game server and starts listening
      * 
      * @param serverIP The IP address of the game server
      * @param port The port number to connect to
      * @param listener The callback interface for game events
      */
     public ClientGame(String serverIP, int port, ClientMessageListener listener) {
+        this(new ClientSocketConnection(serverIP, port), listener);
+    }
+
+    /**
+     * Constructor for ClientGame over an existing connection
+     * 
+     * @param connection Connection to the server
+     * @param listener The callback interface for game events
+     */
+    public ClientGame(ClientConnection connection, ClientMessageListener listener) {
+        this.connection = connection;
         this.listener = listener;
-        try {
-            // Establish connection to server
-            socket = new Socket(serverIP, port);
-            out = new ObjectOutputStream(socket.getOutputStream());
-            in = new ObjectInputStream(socket.getInputStream());
+        connection.open(this);
+    }
 
-            // Start listening for server messages in a separate thread
-            new Thread(this::listen).start();
+    /**
+     * Checks whether the connection to the server was established
+     * 
+     * @return true if the client is connected
+     */
+    public boolean isConnected() {
+        return connection.isConnected();
+    }
 
-        } catch (IOException e) {
-            System.err.println("Cannot connect to server: " + e.getMessage());
-        }
+    /**
+     * Closes the connection to the server
+     */
+    public void close() {
+        connection.close();
     }
 
     /**
@@ -50,46 +68,71 @@ public class ClientGame {
      * @param move The move or message to send to the server
      */
     public void sendMove(CommonMessages move) {
+        if (!connection.isConnected()) {
+            return;
+        }
         try {
-            out.writeObject(move);
-            out.flush();
+            connection.send(move);
         } catch (IOException e) {
             System.err.println("Failed to send move: " + e.getMessage());
         }
     }
 
     /**
-     * Continuously listens for messages from the server
+     * Handles a message received from the server
      * Handles different types of messages:
-     * - Game state updates
+     * - Map topologies, sent once before the first state that uses them
+     * - Game state updates (full keyframes and deltas)
      * - Chat messages
      * - Victory/Defeat notifications
+     * 
+     * @param obj The decoded message
      */
-    private void listen() {
-        try {
-            while (true) {
-                Object obj = in.readObject();
-
-                if (obj instanceof CommonState gameState) {
-                    // Handle game state updates
-                    listener.onGameStateReceived(gameState);
-                } else if (obj instanceof CommonMessages move) {
-                    // Handle different types of messages
-                    switch (move.getType()) {
-                        case COMMUNUCATON ->
-                            listener.onChatMessage(move.getMessage());
-                        case WIN ->
-                            listener.onVictory(move.getMessage());
-                        case LOSE ->
-                            listener.onDefeat(move.getMessage());
-                        default ->
-                            // Handle other message types through game state updates
-                            listener.onGameStateReceived(null);
-                    }
+    @Override
+    public void onMessage(Object obj) {
+        if (obj instanceof CommonTopology topology) {
+            // Make the topology known so that keyframes referring to it can be decoded
+            CommonTopology.register(topology);
+        } else if (obj instanceof CommonState gameState) {
+            // Handle full game state keyframes
+            currentState = gameState;
+            resyncing = false;
+            listener.onGameStateReceived(gameState.copy());
+        } else if (obj instanceof CommonStateDelta delta) {
+            // Apply state deltas; ignore them until the first keyframe and while waiting for one
+            if (currentState != null && !resyncing) {
+                if (delta.applyTo(currentState)) {
+                    listener.onGameStateDelta(currentState.copy(), delta);
+                } else {
+                    System.err.println("Game state diverged from the server (hash " + Long.toHexString(currentState.getHash())
+                            + ", expected " + Long.toHexString(delta.getStateHash()) + "); requesting a full update");
+                    resyncing = true;
+                    sendMove(new CommonMessages(CommonMessages.Type.RESYNC));
                 }
             }
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Connection closed: " + e.getMessage());
+        } else if (obj instanceof CommonMessages move) {
+            // Handle different types of messages
+            switch (move.getType()) {
+                case COMMUNUCATON ->
+                    listener.onChatMessage(move.getMessage());
+                case WIN ->
+                    listener.onVictory(move.getMessage());
+                case LOSE ->
+                    listener.onDefeat(move.getMessage());
+                default ->
+                    // Handle other message types through game state updates
+                    listener.onGameStateReceived(null);
+            }
         }
     }
+
+    /**
+     * Reports the loss of the connection to the server
+     * 
+     * @param reason Description of why the connection ended
+     */
+    @Override
+    public void onDisconnect(String reason) {
+        System.err.println("Connection closed: " + reason);
+    }
 }
@@ -0,0 +1,82 @@
+/**
+ * ClientLoadTest.java
+ * This is the entry point of the headless load generator.
+ * It connects a number of ClientBot players to a running server, lets them play for
+ * a fixed time and reports throughput and round-trip latency once per second and
+ * as a summary at the end. Nothing here touches Swing, so it runs on any machine
+ * that can reach the server.
+ *
+ * Usage: ClientLoadTest [bots] [seconds] [host] [port] [random|scripted]
+ */
+
+package client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ClientLoadTest {
+    /** Time after which an unanswered move counts as stalled */
+    private static final long STALL_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Main method that runs the load test
+     * 
+     * @param args Number of bots (default 1000), duration in seconds (default 60),
+     *             server host (default localhost), server port (default 3131) and
+     *             move choice, random or scripted (default random)
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int botCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        String host = args.length > 2 ? args[2] : "localhost";
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : 3131;
+        boolean scripted = args.length > 4 && "scripted".equals(args[4]);
+
+        System.out.println("Starting " + botCount + " " + (scripted ? "scripted" : "random") + " bots against "
+                + host + ":" + port + " for " + seconds + "s");
+
+        // Connect all bots; the server matches them as they arrive
+        ClientBotStats stats = new ClientBotStats();
+        List<ClientBot> bots = new ArrayList<>(botCount);
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < botCount; i++) {
+            ClientBot bot = new ClientBot(host, port, "bot" + i, scripted, stats, i);
+            bots.add(bot);
+            bot.connect();
+        }
+        System.out.printf("Connected %d bots in %.1f ms (%d failed)%n", stats.getConnected(),
+                (System.nanoTime() - connectStart) / 1e6, stats.getFailed());
+
+        // Report once per second
+        long start = System.nanoTime();
+        long lastMoves = 0;
+        for (int s = 1; s <= seconds; s++) {
+            Thread.sleep(1000);
+            long now = System.nanoTime();
+            for (ClientBot bot : bots) {
+                bot.checkStalled(now, STALL_TIMEOUT_NANOS);
+            }
+            long moves = stats.getMoves();
+            System.out.printf("[%3ds] moves/s=%d p50=%.2fms p99=%.2fms games=%d stalls=%d%n", s, moves - lastMoves,
+                    stats.getLatencyMillis(50), stats.getLatencyMillis(99), stats.getGamesWon(), stats.getStalls());
+            lastMoves = moves;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        // Summary
+        System.out.println("=== Load test summary ===");
+        System.out.printf("Bots: %d, connections: %d opened, %d failed%n", botCount, stats.getConnected(), stats.getFailed());
+        System.out.printf("Moves: %d sent, %d answered, %d stalled, %.0f moves/s%n", stats.getMoves(),
+                stats.getResponses(), stats.getStalls(), stats.getResponses() / elapsed);
+        System.out.printf("Round trip: p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+                stats.getLatencyMillis(50), stats.getLatencyMillis(90), stats.getLatencyMillis(99),
+                stats.getLatencyMillis(99.9), stats.getLatencyMillis(100));
+        System.out.printf("Games finished: %d won, %d lost%n", stats.getGamesWon(), stats.getGamesLost());
+
+        for (ClientBot bot : bots) {
+            bot.disconnect();
+        }
+        System.exit(0);
+    }
+}
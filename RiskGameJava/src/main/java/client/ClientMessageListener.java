@@ -3,11 +3,13 @@
  * This interface defines the callback methods for handling different types of messages
  * received from the game server. Classes implementing this interface can respond to
  * game state updates, chat messages, and game outcome notifications.
+ * Callbacks run on the connection's thread, not on the Swing event dispatch thread.
  */
 
 package client;
 
 import common.CommonState;
+import common.CommonStateDelta;
 
 public interface ClientMessageListener {
     /**
@@ -20,11 +22,24 @@ public interface ClientMessageListener {
     /**
      * Called when the game state is updated by the server
      * This includes changes to territories, armies, and player turns
+     * The state is the listener's own copy and is never changed afterwards
      * 
      * @param gameState The updated game state
      */
     void onGameStateReceived(CommonState gameState);
 
+    /**
+     * Called when the server sent only the changes of the game state
+     * The delta has already been applied to a copy of the last received state
+     * Listeners that do not care about the changed parts simply refresh from the whole state
+     * 
+     * @param gameState The updated game state
+     * @param delta The changes that were applied
+     */
+    default void onGameStateDelta(CommonState gameState, CommonStateDelta delta) {
+        onGameStateReceived(gameState);
+    }
+
     /**
      * Called when the player wins the game
      * 
@@ -0,0 +1,89 @@
+/**
+ * ClientSocketConnection.java
+ * This class implements the client's connection on top of a blocking java.net.Socket.
+ * Incoming frames are read by a dedicated thread and handed to the listener.
+ */
+
+package client;
+
+import common.CommonCodec;
+import common.CommonFrames;
+import common.CommonMessages;
+
+import java.io.*;
+import java.net.Socket;
+
+public class ClientSocketConnection implements ClientConnection {
+    // Network communication components
+    private Socket socket;              // Socket connection to the server
+    private DataOutputStream out;       // Stream for sending frames to server
+    private DataInputStream in;         // Stream for receiving frames from server
+    private final CommonCodec codec = CommonCodec.configured();     // Codec for frame payloads
+    private volatile boolean closed;    // Whether close() was called
+
+    /**
+     * Constructor for ClientSocketConnection
+     * Establishes connection to the game server and initializes communication streams
+     * 
+     * @param serverIP The IP address of the game server
+     * @param port The port number to connect to
+     */
+    public ClientSocketConnection(String serverIP, int port) {
+        try {
+            // Establish connection to server
+            socket = new Socket(serverIP, port);
+            socket.setTcpNoDelay(true);
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        } catch (IOException e) {
+            System.err.println("Cannot connect to server: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void open(Listener listener) {
+        if (isConnected()) {
+            // Start listening for server messages in a separate thread
+            new Thread(() -> listen(listener)).start();
+        }
+    }
+
+    /**
+     * Reads frames until the socket is closed and forwards them to the listener
+     * 
+     * @param listener Receiver of the decoded messages
+     */
+    private void listen(Listener listener) {
+        try {
+            while (true) {
+                listener.onMessage(CommonFrames.readFrame(in, codec));
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                listener.onDisconnect(e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void send(CommonMessages move) throws IOException {
+        CommonFrames.writeFrame(out, codec, move);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return socket != null && socket.isConnected() && !socket.isClosed();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close connection: " + e.getMessage());
+        }
+    }
+}
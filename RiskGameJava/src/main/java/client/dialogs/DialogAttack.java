@@ -3,10 +3,18 @@
  * This class manages the attack dialog in the Risk game.
  * It provides a user interface for selecting source and target territories,
  * choosing the number of dice to roll, and initiating attacks.
+ * The odds of both moves are shown live while the selection changes: the losses
+ * expected from one attack with the chosen dice, and from CommonBattleOdds the
+ * chance that a blitz, which always rolls as many dice as it can, takes the target.
+ * A blitz fights the whole battle in one move, until the target falls or the
+ * attacking territory is down to the number of armies chosen to stay behind.
  */
 
 package client.dialogs;
 
+import common.CommonBattleOdds;
+import common.CommonCombat;
+import common.CommonRules;
 import common.CommonState;
 import common.CommonMessages;
 import common.CommonPlayer;
@@ -30,7 +38,7 @@ public class DialogAttack {
     public static void show(CommonState gameState, String currentPlayer, ClientGame client) {
         // Create and configure the dialog window
         JDialog dialog = new JDialog((Frame) null, "🎯 Attack Territory", true);
-        dialog.setSize(440, 400);
+        dialog.setSize(440, 420);
         dialog.setLocationRelativeTo(null);
         dialog.setUndecorated(true);
 
@@ -101,6 +109,30 @@ public class DialogAttack {
         dicePanel.add(diceIcon);
         card.add(dicePanel);
 
+        // Create and configure the blitz threshold panel
+        JPanel stopPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 12, 0));
+        stopPanel.setOpaque(false);
+        JLabel stopLabel = new JLabel("Blitz stops at:");
+        stopLabel.setFont(new Font("Segoe UI", Font.BOLD, 18));
+        SpinnerNumberModel stopModel = new SpinnerNumberModel(1, 1, 1, 1);
+        JSpinner stopSpinner = new JSpinner(stopModel);
+        stopSpinner.setFont(new Font("Segoe UI", Font.PLAIN, 17));
+        stopSpinner.setPreferredSize(new Dimension(70, 32));
+        JLabel stopUnit = new JLabel("armies");
+        stopUnit.setFont(new Font("Segoe UI", Font.ITALIC, 14));
+        stopPanel.add(stopLabel);
+        stopPanel.add(stopSpinner);
+        stopPanel.add(stopUnit);
+        card.add(stopPanel);
+
+        card.add(Box.createVerticalStrut(8));
+
+        // Create and configure the odds label
+        JLabel oddsLabel = new JLabel(" ");
+        oddsLabel.setFont(new Font("Segoe UI", Font.PLAIN, 15));
+        oddsLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        card.add(oddsLabel);
+
         card.add(Box.createVerticalStrut(12));
 
         // Create and configure the error label
@@ -123,6 +155,15 @@ public class DialogAttack {
         attackBtn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
         attackBtn.setBorder(BorderFactory.createLineBorder(new Color(67, 181, 129), 2, true));
         attackBtn.setPreferredSize(new Dimension(120, 38));
+        JButton blitzBtn = new JButton("Blitz");
+        blitzBtn.setFont(new Font("Segoe UI", Font.BOLD, 19));
+        blitzBtn.setBackground(Color.WHITE);
+        blitzBtn.setForeground(new Color(230, 126, 34));
+        blitzBtn.setFocusPainted(false);
+        blitzBtn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        blitzBtn.setBorder(BorderFactory.createLineBorder(new Color(230, 126, 34), 2, true));
+        blitzBtn.setPreferredSize(new Dimension(120, 38));
+        blitzBtn.setToolTipText("Attack until the territory falls or the chosen number of armies is left");
         JButton cancelBtn = new JButton("Cancel");
         cancelBtn.setFont(new Font("Segoe UI", Font.BOLD, 16));
         cancelBtn.setBackground(Color.WHITE);
@@ -134,10 +175,44 @@ public class DialogAttack {
         btnPanel.add(Box.createHorizontalGlue());
         btnPanel.add(attackBtn);
         btnPanel.add(Box.createHorizontalStrut(18));
+        btnPanel.add(blitzBtn);
+        btnPanel.add(Box.createHorizontalStrut(18));
         btnPanel.add(cancelBtn);
         btnPanel.add(Box.createHorizontalGlue());
         card.add(btnPanel);
 
+        // Show the odds of the moves the buttons send: one attack with the selected dice,
+        // and a blitz with as many dice as possible down to the selected threshold
+        Runnable updateOdds = () -> {
+            String from = (String) fromBox.getSelectedItem();
+            String to = (String) toBox.getSelectedItem();
+            if (from == null || to == null) {
+                oddsLabel.setText(" ");
+                return;
+            }
+            int attackers = gameState.getTerritories().get(from).getArmies();
+            int defenders = gameState.getTerritories().get(to).getArmies();
+            int stopAt = (Integer) stopModel.getValue();
+
+            // The server rolls at most one die fewer than the attacking armies
+            int attackerDice = Math.max(1, Math.min(diceSlider.getValue(), attackers - 1));
+            int defenderDice = Math.min(CommonRules.MAX_DEFEND_DICE, defenders);
+            int pairs = Math.min(attackerDice, defenderDice);
+            double attackerLoss = 0;
+            for (int loss = 1; loss <= pairs; loss++) {
+                attackerLoss += loss * CommonCombat.probability(attackerDice, defenderDice, loss);
+            }
+            String attack = String.format("Attack with %d: you lose %.2f, they lose %.2f",
+                    attackerDice, attackerLoss, pairs - attackerLoss);
+            String blitz = attackers <= stopAt
+                    ? "Blitz: not enough armies to stop at " + stopAt
+                    : String.format("Blitz: capture %.1f%% | left: you %.1f, them %.1f",
+                            CommonBattleOdds.captureProbability(attackers, defenders, CommonRules.MAX_ATTACK_DICE, stopAt) * 100,
+                            CommonBattleOdds.expectedAttackerArmies(attackers, defenders, CommonRules.MAX_ATTACK_DICE, stopAt),
+                            CommonBattleOdds.expectedDefenderArmies(attackers, defenders, CommonRules.MAX_ATTACK_DICE, stopAt));
+            oddsLabel.setText("<html><div style='text-align:center;'>" + attack + "<br>" + blitz + "</div></html>");
+        };
+
         // Populate source territory combo box with valid territories
         CommonPlayer player = gameState.getPlayers().get(currentPlayer);
         List<String> playerTerritories = player.getTerritories();
@@ -156,6 +231,13 @@ public class DialogAttack {
                 // Update source territory info
                 CommonTerritory fromTerritory = gameState.getTerritories().get(from);
                 fromInfo.setText(" (" + fromTerritory.getArmies() + " armies)");
+
+                // A blitz can stop anywhere from one army up to one fewer than the territory holds
+                int maxStop = Math.max(1, fromTerritory.getArmies() - 1);
+                stopModel.setMaximum(maxStop);
+                if ((Integer) stopModel.getValue() > maxStop) {
+                    stopModel.setValue(maxStop);
+                }
                 
                 // Populate target territory combo box with enemy neighbors
                 List<String> neighbors = fromTerritory.getAdjacentTerritories();
@@ -168,13 +250,24 @@ public class DialogAttack {
                 for (String enemy : enemyNeighbors) {
                     toBox.addItem(enemy);
                 }
-                toInfo.setText("");
             } else {
                 fromInfo.setText("");
                 toInfo.setText("");
             }
+            updateOdds.run();
+        });
+
+        // Add action listener for target territory selection
+        toBox.addActionListener((ActionEvent e) -> {
+            String to = (String) toBox.getSelectedItem();
+            toInfo.setText(to != null ? " (" + gameState.getTerritories().get(to).getArmies() + " armies)" : "");
+            updateOdds.run();
         });
 
+        // Update the odds when the dice or the blitz threshold change
+        diceSlider.addChangeListener(e -> updateOdds.run());
+        stopSpinner.addChangeListener(e -> updateOdds.run());
+
         // Select first source territory if available
         if (fromBox.getItemCount() > 0) {
             fromBox.setSelectedIndex(0);
@@ -207,6 +300,28 @@ public class DialogAttack {
             dialog.dispose();
         });
 
+        // Add action listener for the Blitz button
+        blitzBtn.addActionListener((ActionEvent e) -> {
+            String from = (String) fromBox.getSelectedItem();
+            String to = (String) toBox.getSelectedItem();
+
+            // Validate attack parameters
+            if (from == null || to == null) {
+                errorLabel.setText("⚠️ Please select both territories.");
+                return;
+            }
+            int stopAt = (Integer) stopSpinner.getValue();
+            if (gameState.getTerritories().get(from).getArmies() <= stopAt) {
+                errorLabel.setText("⚠️ Not enough armies to attack.");
+                return;
+            }
+
+            // Send blitz move to server, fighting on until the chosen number of armies is left
+            CommonMessages blitz = new CommonMessages(CommonMessages.Type.BLITZ, from, to, stopAt);
+            client.sendMove(blitz);
+            dialog.dispose();
+        });
+
         // Add action listener for the Cancel button
         cancelBtn.addActionListener(e -> dialog.dispose());
 
@@ -45,7 +45,7 @@ public class DialogRules {
 
         // Add rules sections
         addSection(contentPanel, "🎮 Game Overview", 
-            "Risk is a strategy board game where two players compete to conquer territories and eliminate their opponent. " +
+            "Risk is a strategy board game where two to six players compete to conquer territories and eliminate their opponents. " +
             "The game is played on a world map divided into territories across six continents.");
 
         addSection(contentPanel, "🎲 Turn Structure", 
@@ -82,7 +82,8 @@ public class DialogRules {
             "• Optional phase");
 
         addSection(contentPanel, "🏆 Victory", 
-            "The game is won by eliminating your opponent's armies and capturing all territories.");
+            "A player who loses all territories is eliminated. The last player standing wins the game.\n" +
+            "Territories of a player who leaves become neutral and can be captured.");
 
         // Create scroll pane
         JScrollPane scrollPane = new JScrollPane(contentPanel);
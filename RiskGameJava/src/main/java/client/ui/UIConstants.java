@@ -48,6 +48,38 @@ public class UIConstants {
 
         /** Color for borders around components */
         public static final Color BORDER = new Color(54, 57, 63);
+
+        /** Color of the red player */
+        public static final Color PLAYER_RED = Color.RED;
+        /** Color of the blue player */
+        public static final Color PLAYER_BLUE = Color.BLUE;
+        /** Color of the green player */
+        public static final Color PLAYER_GREEN = new Color(0, 150, 0);
+        /** Color of the yellow player */
+        public static final Color PLAYER_YELLOW = new Color(210, 180, 0);
+        /** Color of the purple player */
+        public static final Color PLAYER_PURPLE = new Color(130, 50, 170);
+        /** Color of the orange player */
+        public static final Color PLAYER_ORANGE = new Color(235, 120, 0);
+
+        /**
+         * Gets the on-screen color of a player
+         *
+         * @param name Color name from CommonPlayer.COLORS, in any case, or null
+         * @param fallback Color for unknown names
+         * @return The player's color
+         */
+        public static Color forPlayer(String name, Color fallback) {
+            return switch (name != null ? name.toUpperCase() : "") {
+                case "RED" -> PLAYER_RED;
+                case "BLUE" -> PLAYER_BLUE;
+                case "GREEN" -> PLAYER_GREEN;
+                case "YELLOW" -> PLAYER_YELLOW;
+                case "PURPLE" -> PLAYER_PURPLE;
+                case "ORANGE" -> PLAYER_ORANGE;
+                default -> fallback;
+            };
+        }
     }
 
     /**
@@ -64,11 +64,7 @@ public class UIPlayerInfoPanel extends JPanel {
      */
     public void updatePlayerInfo(CommonPlayer player, int remainingArmies, int territories) {
         // Set player name color based on their assigned color
-        Color nameColor = switch (player.getColor().toUpperCase()) {
-            case "RED" -> Color.RED;
-            case "BLUE" -> Color.BLUE;
-            default -> UIConstants.Colors.TEXT_PRIMARY;
-        };
+        Color nameColor = UIConstants.Colors.forPlayer(player.getColor(), UIConstants.Colors.TEXT_PRIMARY);
         playerNameLabel.setText(player.getName());
         playerNameLabel.setForeground(nameColor);
         armiesLabel.setText("Remaining Armies: " + remainingArmies);
@@ -0,0 +1,249 @@
+/**
+ * CommonBattleOdds.java
+ * This class computes the exact odds of a battle fought to the end.
+ * A battle is the standard Risk Markov chain: each round moves from (attacker,
+ * defender) armies to a state with fewer armies, with the round probabilities of
+ * CommonCombat, until the defender is emptied or the attacker is down to the armies
+ * it stops at, one unless a blitz chose more. The odds of all battles up to a size
+ * are computed together and memoized in a flat table per number of dice and
+ * stopping point, so a lookup is a single array read. Bigger battles are estimated
+ * from the largest table by scaling both sides down in proportion.
+ */
+
+package common;
+
+public final class CommonBattleOdds {
+    /** Largest table kept in memory; bigger battles are estimated from a scaled-down battle */
+    private static final int MAX_CACHED_ARMIES = 512;
+    /** Size of the first table */
+    private static final int INITIAL_ARMIES = 64;
+    /** Values stored per battle: capture probability, expected attacker and defender armies left */
+    private static final int VALUES = 3;
+
+    /** Memoized odds for each number of attacking dice and each number of armies kept beyond one */
+    private static final Table[][] TABLES = new Table[CommonRules.MAX_ATTACK_DICE][CommonRules.MAX_ATTACK_DICE];
+
+    private CommonBattleOdds() {
+    }
+
+    /**
+     * Gets the probability that the attacker captures the territory
+     *
+     * @param attackerArmies Armies in the attacking territory, one of which must stay behind
+     * @param defenderArmies Armies in the defending territory
+     * @param dice Most dice the attacker rolls each round, 1 to 3
+     * @return Probability of capturing the territory
+     */
+    public static double captureProbability(int attackerArmies, int defenderArmies, int dice) {
+        return captureProbability(attackerArmies, defenderArmies, dice, 1);
+    }
+
+    /**
+     * Gets the probability that a blitz captures the territory
+     * The attacker rolls the given dice while it has more armies than it stops at.
+     *
+     * @param attackerArmies Armies in the attacking territory
+     * @param defenderArmies Armies in the defending territory
+     * @param dice Most dice the attacker rolls each round, 1 to 3
+     * @param stopAt Armies at which the attacker stops, at least 1
+     * @return Probability of capturing the territory
+     */
+    public static double captureProbability(int attackerArmies, int defenderArmies, int dice, int stopAt) {
+        return lookup(attackerArmies, defenderArmies, dice, stopAt, 0);
+    }
+
+    /**
+     * Gets the expected number of armies left in the attacking territory after the battle
+     * Armies moved into a captured territory are counted as left.
+     *
+     * @param attackerArmies Armies in the attacking territory, one of which must stay behind
+     * @param defenderArmies Armies in the defending territory
+     * @param dice Most dice the attacker rolls each round, 1 to 3
+     * @return Expected attacking armies, including the one that stays behind
+     */
+    public static double expectedAttackerArmies(int attackerArmies, int defenderArmies, int dice) {
+        return expectedAttackerArmies(attackerArmies, defenderArmies, dice, 1);
+    }
+
+    /**
+     * Gets the expected number of armies left in the attacking territory after a blitz
+     * Armies moved into a captured territory are counted as left.
+     *
+     * @param attackerArmies Armies in the attacking territory
+     * @param defenderArmies Armies in the defending territory
+     * @param dice Most dice the attacker rolls each round, 1 to 3
+     * @param stopAt Armies at which the attacker stops, at least 1
+     * @return Expected attacking armies, including the ones kept back
+     */
+    public static double expectedAttackerArmies(int attackerArmies, int defenderArmies, int dice, int stopAt) {
+        return lookup(attackerArmies, defenderArmies, dice, stopAt, 1) + Math.max(1, stopAt);
+    }
+
+    /**
+     * Gets the expected number of armies left in the defending territory after the battle
+     *
+     * @param attackerArmies Armies in the attacking territory, one of which must stay behind
+     * @param defenderArmies Armies in the defending territory
+     * @param dice Most dice the attacker rolls each round, 1 to 3
+     * @return Expected defending armies, 0 if the territory falls
+     */
+    public static double expectedDefenderArmies(int attackerArmies, int defenderArmies, int dice) {
+        return expectedDefenderArmies(attackerArmies, defenderArmies, dice, 1);
+    }
+
+    /**
+     * Gets the expected number of armies left in the defending territory after a blitz
+     *
+     * @param attackerArmies Armies in the attacking territory
+     * @param defenderArmies Armies in the defending territory
+     * @param dice Most dice the attacker rolls each round, 1 to 3
+     * @param stopAt Armies at which the attacker stops, at least 1
+     * @return Expected defending armies, 0 if the territory falls
+     */
+    public static double expectedDefenderArmies(int attackerArmies, int defenderArmies, int dice, int stopAt) {
+        return lookup(attackerArmies, defenderArmies, dice, stopAt, 2);
+    }
+
+    /**
+     * Reads one value of a battle from the memoized table
+     * Battles bigger than MAX_CACHED_ARMIES are scaled down to fit the largest table and
+     * the expected armies scaled back up; the capture probability of the smaller battle
+     * is a little less extreme than the real one, which is close enough to show or rank.
+     *
+     * @param attackerArmies Armies in the attacking territory
+     * @param defenderArmies Armies in the defending territory
+     * @param dice Most dice the attacker rolls each round
+     * @param stopAt Armies at which the attacker stops
+     * @param value Index of the value
+     * @return The value, attacking armies counted above the ones kept back
+     */
+    private static double lookup(int attackerArmies, int defenderArmies, int dice, int stopAt, int value) {
+        int keep = Math.max(1, stopAt);
+        int attackers = Math.max(0, attackerArmies - keep);
+        int defenders = Math.max(0, defenderArmies);
+        dice = Math.max(1, Math.min(CommonRules.MAX_ATTACK_DICE, dice));
+        // Armies kept back only matter through the dice they let the attacker roll
+        int reserve = Math.min(keep - 1, dice - 1);
+
+        int needed = Math.max(attackers, defenders);
+        double scale = 1;
+        if (needed > MAX_CACHED_ARMIES) {
+            scale = (double) needed / MAX_CACHED_ARMIES;
+            attackers = (int) Math.round(attackers / scale);
+            defenders = (int) Math.round(defenders / scale);
+            needed = MAX_CACHED_ARMIES;
+        }
+        Table table = TABLES[dice - 1][reserve];
+        if (table == null || table.size < needed) {
+            table = grow(dice, reserve, needed);
+        }
+        double result = table.get(attackers, defenders, value);
+        return value == 0 ? result : result * scale;
+    }
+
+    /**
+     * Replaces the table for a number of dice and stopping point with one big enough for a battle
+     *
+     * @param dice Most dice the attacker rolls each round
+     * @param reserve Armies kept back beyond the one that must stay
+     * @param needed Largest army count the table must cover
+     * @return The new table
+     */
+    private static synchronized Table grow(int dice, int reserve, int needed) {
+        Table table = TABLES[dice - 1][reserve];
+        if (table != null && table.size >= needed) {
+            return table;
+        }
+        int size = table != null ? table.size : INITIAL_ARMIES;
+        while (size < needed) {
+            size *= 2;
+        }
+        table = new Table(Math.min(size, MAX_CACHED_ARMIES), dice, reserve);
+        TABLES[dice - 1][reserve] = table;
+        return table;
+    }
+
+    /**
+     * The odds of every battle up to a number of armies on each side
+     * Indexed by armies the attacker can still lose and armies of the defender.
+     * A battle ends when the attacker cannot lose any more; the last round may take it
+     * below its stopping point, which is stored as a negative number of armies left.
+     */
+    private static final class Table {
+        private final int size;         // Largest army count covered
+        private final float[] values;   // VALUES entries per battle, row by row
+
+        /**
+         * Computes the odds of all battles up to a size
+         * Every round removes at least one army, so each battle only depends on
+         * battles earlier in row order and the table is filled in one pass.
+         *
+         * @param size Largest army count on either side
+         * @param dice Most dice the attacker rolls each round
+         * @param reserve Armies kept back beyond the one that must stay, which still roll dice
+         */
+        Table(int size, int dice, int reserve) {
+            this.size = size;
+            this.values = new float[(size + 1) * (size + 1) * VALUES];
+            for (int a = 0; a <= size; a++) {
+                for (int d = 0; d <= size; d++) {
+                    int i = index(a, d);
+                    if (d == 0) {
+                        values[i] = 1;
+                        values[i + 1] = a;
+                        continue;
+                    }
+                    if (a == 0) {
+                        values[i + 2] = d;
+                        continue;
+                    }
+                    int attackerDice = Math.min(dice, a + reserve);
+                    int defenderDice = Math.min(CommonRules.MAX_DEFEND_DICE, d);
+                    int pairs = Math.min(attackerDice, defenderDice);
+                    double capture = 0;
+                    double attackersLeft = 0;
+                    double defendersLeft = 0;
+                    for (int loss = 0; loss <= pairs; loss++) {
+                        double p = CommonCombat.probability(attackerDice, defenderDice, loss);
+                        if (loss > a) {
+                            // The round took the attacker below its stopping point; the defender lost nothing
+                            attackersLeft += p * (a - loss);
+                            defendersLeft += p * d;
+                            continue;
+                        }
+                        int next = index(a - loss, d - (pairs - loss));
+                        capture += p * values[next];
+                        attackersLeft += p * values[next + 1];
+                        defendersLeft += p * values[next + 2];
+                    }
+                    values[i] = (float) capture;
+                    values[i + 1] = (float) attackersLeft;
+                    values[i + 2] = (float) defendersLeft;
+                }
+            }
+        }
+
+        /**
+         * Gets one value of a battle
+         *
+         * @param attackers Armies the attacker can still lose
+         * @param defenders Armies of the defender
+         * @param value Index of the value
+         * @return The value
+         */
+        double get(int attackers, int defenders, int value) {
+            return values[index(attackers, defenders) + value];
+        }
+
+        /**
+         * Gets the position of a battle in the table
+         *
+         * @param attackers Armies the attacker can still lose
+         * @param defenders Armies of the defender
+         * @return Index of the battle's first value
+         */
+        private int index(int attackers, int defenders) {
+            return (attackers * (size + 1) + defenders) * VALUES;
+        }
+    }
+}
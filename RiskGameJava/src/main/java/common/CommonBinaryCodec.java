@@ -0,0 +1,488 @@
+/**
+ * CommonBinaryCodec.java
+ * This class encodes messages and game states in a compact hand-written binary format.
+ * Territories are written as indices into their topology, players as indices into the
+ * state's player table, message types as enum ordinals, and all counts as unsigned varints.
+ * A state refers to its topology by content hash only; the topology itself is a separate
+ * payload that the server sends once per connection. No reflection is used.
+ */
+
+package common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class CommonBinaryCodec implements CommonCodec {
+    /** Shared stateless instance */
+    public static final CommonBinaryCodec INSTANCE = new CommonBinaryCodec(false);
+    /** Shared instance for server-side connections, which only decodes messages */
+    private static final CommonBinaryCodec SERVER = new CommonBinaryCodec(true);
+
+    /** Payload tag of a CommonMessages */
+    private static final int TAG_MESSAGE = 1;
+    /** Payload tag of a CommonState */
+    private static final int TAG_STATE = 2;
+    /** Payload tag of a CommonStateDelta */
+    private static final int TAG_DELTA = 3;
+    /** Payload tag of a CommonTopology */
+    private static final int TAG_TOPOLOGY = 4;
+
+    /** String field is null */
+    private static final int STRING_NULL = 0;
+    /** String field is the empty string */
+    private static final int STRING_EMPTY = 1;
+    /** String field is a territory name, written as its index */
+    private static final int STRING_TERRITORY = 2;
+    /** String field is written as UTF-8 bytes */
+    private static final int STRING_TEXT = 3;
+
+    /** Most continents a decoded topology may have */
+    public static final int MAX_CONTINENTS = 256;
+    /** Most territories a decoded topology or delta may refer to */
+    public static final int MAX_TERRITORIES = 4096;
+    /** Most armies a decoded message may ask to place, attack with or move */
+    public static final int MAX_ARMY_COUNT = 1 << 20;
+
+    /** Message types, indexed by ordinal */
+    private static final CommonMessages.Type[] TYPES = CommonMessages.Type.values();
+    /** Topology whose territory names are abbreviated in message fields */
+    private static final CommonTopology FIELD_TOPOLOGY = CommonMapCreation.standardTopology();
+
+    private final boolean messagesOnly;     // Whether payloads other than messages are rejected
+
+    /**
+     * Constructor for CommonBinaryCodec
+     *
+     * @param messagesOnly Whether to reject states, deltas and topologies when decoding
+     */
+    private CommonBinaryCodec(boolean messagesOnly) {
+        this.messagesOnly = messagesOnly;
+    }
+
+    @Override
+    public byte[] encode(Object message) throws IOException {
+        Writer w = new Writer();
+        if (message instanceof CommonMessages move) {
+            w.writeByte(TAG_MESSAGE);
+            writeMessage(w, move);
+        } else if (message instanceof CommonState state) {
+            w.writeByte(TAG_STATE);
+            writeState(w, state);
+        } else if (message instanceof CommonStateDelta delta) {
+            w.writeByte(TAG_DELTA);
+            writeDelta(w, delta);
+        } else if (message instanceof CommonTopology topology) {
+            w.writeByte(TAG_TOPOLOGY);
+            writeTopology(w, topology);
+        } else {
+            throw new IOException("Cannot encode " + (message == null ? "null" : message.getClass().getName()));
+        }
+        return w.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] data, int offset, int length) throws IOException {
+        Reader r = new Reader(data, offset, length);
+        int tag = r.readByte();
+        if (messagesOnly && tag != TAG_MESSAGE) {
+            throw new IOException("Unexpected payload tag from a player: " + tag);
+        }
+        return switch (tag) {
+            case TAG_MESSAGE -> readMessage(r);
+            case TAG_STATE -> readState(r);
+            case TAG_DELTA -> readDelta(r);
+            case TAG_TOPOLOGY -> readTopology(r);
+            default -> throw new IOException("Unknown payload tag: " + tag);
+        };
+    }
+
+    @Override
+    public CommonCodec forServer() {
+        return SERVER;
+    }
+
+    /**
+     * Writes a message as type ordinal, three string fields and the army count
+     */
+    private void writeMessage(Writer w, CommonMessages move) {
+        w.writeByte(move.getType().ordinal());
+        writeField(w, move.getMessage());
+        writeField(w, move.getFrom());
+        writeField(w, move.getTo());
+        w.writeVarint(move.getArmyCount());
+    }
+
+    /**
+     * Reads a message written by writeMessage
+     */
+    private CommonMessages readMessage(Reader r) throws IOException {
+        int ordinal = r.readByte();
+        if (ordinal >= TYPES.length) {
+            throw new IOException("Unknown message type: " + ordinal);
+        }
+        String message = readField(r);
+        String from = readField(r);
+        String to = readField(r);
+        int armyCount = r.readVarint();
+        if (armyCount < 0 || armyCount > MAX_ARMY_COUNT) {
+            throw new IOException("Invalid army count: " + armyCount);
+        }
+        return new CommonMessages(TYPES[ordinal], message, from, to, armyCount);
+    }
+
+    /**
+     * Writes a string field, using a territory index when the text is a territory name
+     */
+    private void writeField(Writer w, String value) {
+        if (value == null) {
+            w.writeByte(STRING_NULL);
+        } else if (value.isEmpty()) {
+            w.writeByte(STRING_EMPTY);
+        } else {
+            int territory = FIELD_TOPOLOGY.indexOf(value);
+            if (territory >= 0) {
+                w.writeByte(STRING_TERRITORY);
+                w.writeVarint(territory);
+            } else {
+                w.writeByte(STRING_TEXT);
+                w.writeString(value);
+            }
+        }
+    }
+
+    /**
+     * Reads a string field written by writeField
+     */
+    private String readField(Reader r) throws IOException {
+        int kind = r.readByte();
+        return switch (kind) {
+            case STRING_NULL -> null;
+            case STRING_EMPTY -> "";
+            case STRING_TERRITORY -> FIELD_TOPOLOGY.getTerritoryName(territoryIndex(FIELD_TOPOLOGY, r.readVarint()));
+            case STRING_TEXT -> r.readString();
+            default -> throw new IOException("Unknown string field kind: " + kind);
+        };
+    }
+
+    /**
+     * Writes a map topology
+     * Layout: continents as name and bonus, then territories as name, continent index
+     * and the indices of their neighbours
+     */
+    private void writeTopology(Writer w, CommonTopology topology) {
+        w.writeVarint(topology.getContinentCount());
+        for (int c = 0; c < topology.getContinentCount(); c++) {
+            w.writeString(topology.getContinentName(c));
+            w.writeVarint(topology.getContinentBonus(c));
+        }
+        w.writeVarint(topology.getTerritoryCount());
+        for (int t = 0; t < topology.getTerritoryCount(); t++) {
+            w.writeString(topology.getTerritoryName(t));
+            w.writeVarint(topology.getContinent(t));
+            int[] adjacent = topology.getAdjacent(t);
+            w.writeVarint(adjacent.length);
+            for (int neighbour : adjacent) {
+                w.writeVarint(neighbour);
+            }
+        }
+    }
+
+    /**
+     * Reads a map topology written by writeTopology
+     * The result is registered, so states referring to it can be decoded afterwards
+     */
+    private CommonTopology readTopology(Reader r) throws IOException {
+        int continentCount = r.readCount(MAX_CONTINENTS, 2);
+        String[] continentNames = new String[continentCount];
+        int[] continentBonuses = new int[continentCount];
+        for (int c = 0; c < continentCount; c++) {
+            continentNames[c] = r.readString();
+            continentBonuses[c] = r.readVarint();
+        }
+        int territoryCount = r.readCount(MAX_TERRITORIES, 3);
+        String[] territoryNames = new String[territoryCount];
+        int[] territoryContinents = new int[territoryCount];
+        int[][] adjacency = new int[territoryCount][];
+        for (int t = 0; t < territoryCount; t++) {
+            territoryNames[t] = r.readString();
+            territoryContinents[t] = r.readVarint();
+            if (territoryContinents[t] >= continentCount) {
+                throw new IOException("Invalid continent index: " + territoryContinents[t]);
+            }
+            adjacency[t] = new int[r.readCount(territoryCount, 1)];
+            for (int j = 0; j < adjacency[t].length; j++) {
+                adjacency[t][j] = r.readVarint();
+                if (adjacency[t][j] >= territoryCount) {
+                    throw new IOException("Invalid territory index: " + adjacency[t][j]);
+                }
+            }
+        }
+        return CommonTopology.register(new CommonTopology(
+                territoryNames, territoryContinents, continentNames, continentBonuses, adjacency));
+    }
+
+    /**
+     * Writes a game state
+     * Layout: topology hash, player table, current turn player index, then owner index
+     * and armies of every territory in topology order. Names, continents and adjacency
+     * are not sent because the receiver already holds the topology.
+     */
+    private void writeState(Writer w, CommonState state) throws IOException {
+        CommonTopology topology = state.getTopology();
+        w.writeLong(topology.getHash());
+        Map<String, Integer> playerIndex = new HashMap<>();
+        w.writeVarint(state.getPlayerCount());
+        for (int i = 0; i < state.getPlayerCount(); i++) {
+            CommonPlayer p = state.getPlayer(i);
+            playerIndex.put(p.getName(), i);
+            w.writeString(p.getName());
+            w.writeString(p.getColor());
+            w.writeVarint(p.getAvailableArmies());
+            w.writeByte(p.isTurn() ? 1 : 0);
+        }
+        w.writeVarint(indexOrNone(playerIndex, state.getCurrentTurnPlayer()));
+
+        for (int i = 0; i < topology.getTerritoryCount(); i++) {
+            w.writeVarint(state.getOwnerId(i) + 1);
+            w.writeVarint(state.getArmies(i));
+        }
+    }
+
+    /**
+     * Reads a game state written by writeState
+     * The topology must have been registered before; player territory lists are
+     * rebuilt from the territory owners
+     */
+    private CommonState readState(Reader r) throws IOException {
+        long hash = r.readLong();
+        CommonTopology topology = CommonTopology.forHash(hash);
+        if (topology == null) {
+            throw new IOException("Unknown map topology: " + Long.toHexString(hash));
+        }
+        CommonState state = new CommonState(topology);
+        int playerCount = r.readCount(CommonPlayer.MAX_PLAYERS, 4);
+        CommonPlayer[] players = new CommonPlayer[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            CommonPlayer p = state.addPlayer(r.readString(), r.readString());
+            p.setAvailableArmies(r.readVarint());
+            p.setTurn(r.readByte() != 0);
+            players[i] = p;
+        }
+        CommonPlayer turn = playerOrNone(players, r.readVarint());
+        state.setCurrentTurnPlayer(turn != null ? turn.getName() : null);
+
+        for (int i = 0; i < topology.getTerritoryCount(); i++) {
+            CommonPlayer owner = playerOrNone(players, r.readVarint());
+            int armies = r.readVarint();
+            if (armies < 0) {
+                throw new IOException("Invalid army count: " + armies);
+            }
+            state.setArmies(i, armies);
+            state.setOwner(i, owner);
+        }
+        return state;
+    }
+
+    /**
+     * Writes a state delta
+     * Layout: turn player, state hash, then the changed territories as index, owner and armies,
+     * then the changed players as name, reserve and turn flag
+     */
+    private void writeDelta(Writer w, CommonStateDelta delta) throws IOException {
+        writeField(w, delta.getCurrentTurnPlayer());
+        w.writeLong(delta.getStateHash());
+        w.writeVarint(delta.getTerritories().size());
+        for (CommonStateDelta.TerritoryChange change : delta.getTerritories()) {
+            w.writeVarint(change.territory());
+            w.writeVarint(change.owner() + 1);
+            w.writeVarint(change.armies());
+        }
+        w.writeVarint(delta.getPlayers().size());
+        for (CommonStateDelta.PlayerChange change : delta.getPlayers()) {
+            w.writeString(change.name());
+            w.writeVarint(change.availableArmies());
+            w.writeByte(change.turn() ? 1 : 0);
+        }
+    }
+
+    /**
+     * Reads a state delta written by writeDelta
+     * Indices are only checked against the hard limits here; applyTo checks them
+     * against the state the delta is applied to
+     */
+    private CommonStateDelta readDelta(Reader r) throws IOException {
+        CommonStateDelta delta = new CommonStateDelta(readField(r), r.readLong());
+        int territoryCount = r.readCount(MAX_TERRITORIES, 3);
+        for (int i = 0; i < territoryCount; i++) {
+            int territory = r.readVarint();
+            if (territory < 0 || territory >= MAX_TERRITORIES) {
+                throw new IOException("Invalid territory index: " + territory);
+            }
+            int owner = r.readVarint() - 1;
+            if (owner < -1 || owner >= CommonPlayer.MAX_PLAYERS) {
+                throw new IOException("Invalid player index: " + (owner + 1));
+            }
+            int armies = r.readVarint();
+            if (armies < 0) {
+                throw new IOException("Invalid army count: " + armies);
+            }
+            delta.addTerritory(new CommonStateDelta.TerritoryChange(territory, owner, armies));
+        }
+        int playerCount = r.readCount(CommonPlayer.MAX_PLAYERS, 3);
+        for (int i = 0; i < playerCount; i++) {
+            delta.addPlayer(new CommonStateDelta.PlayerChange(r.readString(), r.readVarint(), r.readByte() != 0));
+        }
+        return delta;
+    }
+
+    /**
+     * Maps a player name to its table index plus one, or 0 for no player
+     */
+    private int indexOrNone(Map<String, Integer> playerIndex, String name) throws IOException {
+        if (name == null) {
+            return 0;
+        }
+        Integer index = playerIndex.get(name);
+        if (index == null) {
+            throw new IOException("Unknown player: " + name);
+        }
+        return index + 1;
+    }
+
+    /**
+     * Maps an encoded player reference back to the player, or null for no player
+     */
+    private CommonPlayer playerOrNone(CommonPlayer[] players, int encoded) throws IOException {
+        if (encoded == 0) {
+            return null;
+        }
+        if (encoded < 0 || encoded > players.length) {
+            throw new IOException("Invalid player index: " + encoded);
+        }
+        return players[encoded - 1];
+    }
+
+    /**
+     * Checks that a decoded territory index is valid in a topology
+     */
+    private int territoryIndex(CommonTopology topology, int index) throws IOException {
+        if (index < 0 || index >= topology.getTerritoryCount()) {
+            throw new IOException("Invalid territory index: " + index);
+        }
+        return index;
+    }
+
+    /**
+     * Growable byte buffer with varint and string helpers
+     */
+    static final class Writer {
+        private byte[] buf = new byte[256];
+        private int size;
+
+        void writeByte(int b) {
+            if (size == buf.length) {
+                buf = Arrays.copyOf(buf, size * 2);
+            }
+            buf[size++] = (byte) b;
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                writeByte((int) (value >>> shift));
+            }
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            for (byte b : bytes) {
+                writeByte(b);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+    }
+
+    /**
+     * Bounds-checked reader over a payload
+     */
+    static final class Reader {
+        private final byte[] data;
+        private final int end;
+        private int pos;
+
+        Reader(byte[] data, int offset, int length) {
+            this.data = data;
+            this.pos = offset;
+            this.end = offset + length;
+        }
+
+        int readByte() throws IOException {
+            if (pos >= end) {
+                throw new IOException("Truncated payload");
+            }
+            return data[pos++] & 0xFF;
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        long readLong() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        /**
+         * Reads the number of items that follow
+         * Fails before anything is allocated if the count is negative, above a
+         * hard limit, or larger than the rest of the payload could hold
+         *
+         * @param max Largest allowed count
+         * @param minBytes Fewest bytes one item takes on the wire
+         * @return The count
+         */
+        int readCount(int max, int minBytes) throws IOException {
+            int count = readVarint();
+            if (count < 0 || count > max) {
+                throw new IOException("Invalid count: " + count);
+            }
+            if ((long) count * minBytes > end - pos) {
+                throw new IOException("Truncated payload");
+            }
+            return count;
+        }
+
+        String readString() throws IOException {
+            int length = readVarint();
+            if (length < 0 || length > end - pos) {
+                throw new IOException("Truncated payload");
+            }
+            String value = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+}
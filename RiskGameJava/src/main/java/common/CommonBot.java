@@ -0,0 +1,147 @@
+/**
+ * CommonBot.java
+ * This class is the built-in computer player.
+ * On its turn it places all available armies on a territory next to an enemy,
+ * attacks a few times and ends the turn, always choosing legal moves for the state
+ * it is given. It only decides; the caller sends or applies the move, so the same
+ * bot plays over the network, in simulations and as a rollout policy for search.
+ */
+
+package common;
+
+import java.util.random.RandomGenerator;
+
+public class CommonBot {
+    /** Most attacks the bot makes in one turn */
+    public static final int MAX_ATTACKS_PER_TURN = 5;
+
+    private final boolean scripted;             // Whether the bot always takes the first legal move
+    private final RandomGenerator random;       // Move choices of this bot
+    private int attacks;                        // Attacks made this turn
+
+    /**
+     * Constructor for CommonBot
+     *
+     * @param scripted true to always take the first legal move, false to choose at random
+     * @param random Source of the bot's choices
+     */
+    public CommonBot(boolean scripted, RandomGenerator random) {
+        this.scripted = scripted;
+        this.random = random;
+    }
+
+    /**
+     * Forgets the attacks of the current turn, for example when a new game starts
+     */
+    public void reset() {
+        attacks = 0;
+    }
+
+    /**
+     * Chooses the bot's next move
+     * Must only be called on the bot's turn
+     *
+     * @param state Current game state
+     * @param player The bot's player id
+     * @return A placement, an attack or the end of the turn
+     */
+    public CommonMessages nextMove(CommonState state, int player) {
+        CommonTopology topology = state.getTopology();
+
+        int reserve = state.getReserve(player);
+        if (reserve > 0) {
+            int to = chooseFrontier(state, player);
+            return new CommonMessages(CommonMessages.Type.PLACE_ARMY, null, topology.getTerritoryName(to), reserve);
+        }
+
+        if (attacks < MAX_ATTACKS_PER_TURN) {
+            long attack = chooseAttack(state, player);
+            if (attack >= 0) {
+                int from = (int) (attack >>> 32);
+                int to = (int) attack;
+                attacks++;
+                return new CommonMessages(CommonMessages.Type.ATTACK, topology.getTerritoryName(from),
+                        topology.getTerritoryName(to), Math.min(CommonRules.MAX_ATTACK_DICE, state.getArmies(from) - 1));
+            }
+        }
+
+        attacks = 0;
+        return new CommonMessages(CommonMessages.Type.END_TURN, null, null, 0);
+    }
+
+    /**
+     * Chooses an owned territory to reinforce, preferring ones next to an enemy
+     *
+     * @param state Current game state
+     * @param player The bot's player id
+     * @return Territory index
+     */
+    private int chooseFrontier(CommonState state, int player) {
+        CommonTopology topology = state.getTopology();
+        int chosen = -1;
+        int fallback = -1;
+        int seen = 0;
+        for (int t = 0; t < topology.getTerritoryCount(); t++) {
+            if (!state.ownsTerritory(player, t)) {
+                continue;
+            }
+            if (fallback < 0) {
+                fallback = t;
+            }
+            if (!bordersEnemy(state, player, t)) {
+                continue;
+            }
+            seen++;
+            if (chosen < 0 || (!scripted && random.nextInt(seen) == 0)) {
+                chosen = t;
+            }
+        }
+        return chosen >= 0 ? chosen : fallback;
+    }
+
+    /**
+     * Chooses a legal attack
+     *
+     * @param state Current game state
+     * @param player The bot's player id
+     * @return Attacking territory in the upper and defending territory in the lower
+     *         32 bits, or -1 if no attack is possible
+     */
+    private long chooseAttack(CommonState state, int player) {
+        CommonTopology topology = state.getTopology();
+        long chosen = -1;
+        int seen = 0;
+        for (int from = 0; from < topology.getTerritoryCount(); from++) {
+            if (!state.ownsTerritory(player, from) || state.getArmies(from) < 2) {
+                continue;
+            }
+            for (int to : topology.getAdjacent(from)) {
+                if (state.ownsTerritory(player, to)) {
+                    continue;
+                }
+                seen++;
+                if (chosen < 0 || (!scripted && random.nextInt(seen) == 0)) {
+                    chosen = ((long) from << 32) | to;
+                }
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Checks whether a territory has a neighbour owned by someone else
+     *
+     * @param state Current game state
+     * @param player The bot's player id
+     * @param territory Territory index
+     * @return true if a neighbour is not owned by the bot
+     */
+    private static boolean bordersEnemy(CommonState state, int player, int territory) {
+        for (int neighbour : state.getTopology().getAdjacent(territory)) {
+            if (!state.ownsTerritory(player, neighbour)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
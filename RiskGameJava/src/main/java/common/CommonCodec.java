@@ -0,0 +1,52 @@
+/**
+ * CommonCodec.java
+ * This interface defines how messages are turned into frame payloads and back.
+ * Client and server must use the same codec; the payload is always wrapped
+ * in the length-prefixed framing of CommonFrames.
+ */
+
+package common;
+
+import java.io.IOException;
+
+public interface CommonCodec {
+    /**
+     * Encodes a message into a payload
+     *
+     * @param message The message to encode
+     * @return Encoded payload bytes
+     */
+    byte[] encode(Object message) throws IOException;
+
+    /**
+     * Decodes a payload into a message
+     *
+     * @param data Buffer holding the payload
+     * @param offset Offset of the first payload byte
+     * @param length Number of payload bytes
+     * @return The decoded message
+     */
+    Object decode(byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * Gets the variant of this codec for the server side of a connection
+     * It encodes like this codec but only decodes CommonMessages: states, deltas and
+     * topologies only ever travel from the server to the players, so a player sending
+     * one is a protocol error and must not reach the server's topology registry.
+     *
+     * @return Codec for server-side connections
+     */
+    CommonCodec forServer();
+
+    /**
+     * Gets the codec selected by the "risk.codec" system property
+     * "serial" selects Java serialization, anything else the compact binary codec
+     *
+     * @return The configured codec
+     */
+    static CommonCodec configured() {
+        return "serial".equals(System.getProperty("risk.codec"))
+                ? CommonSerialCodec.INSTANCE
+                : CommonBinaryCodec.INSTANCE;
+    }
+}
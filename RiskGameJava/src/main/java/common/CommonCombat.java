@@ -0,0 +1,187 @@
+/**
+ * CommonCombat.java
+ * This class resolves one round of dice between an attacker and a defender.
+ * For every combination of 1-3 attacking and 1-2 defending dice, all possible
+ * rolls are enumerated once and ordered by the attacker's losses, so a single
+ * random number picks a roll with exactly the odds of real dice and the losses
+ * are read from a small cumulative table. Resolving a round allocates nothing;
+ * the dice faces of a roll are only worked out when someone wants to show them.
+ */
+
+package common;
+
+import java.util.random.RandomGenerator;
+
+public final class CommonCombat {
+    /** Sides of a die */
+    private static final int SIDES = 6;
+
+    /** Rolls of each case ordered by attacker losses, as base-6 digits with the attacker's dice first */
+    private static final int[][][] ROLLS = new int[CommonRules.MAX_ATTACK_DICE][CommonRules.MAX_DEFEND_DICE][];
+    /** Number of ordered rolls of each case in which the attacker loses at most the index */
+    private static final int[][][] CUMULATIVE = new int[CommonRules.MAX_ATTACK_DICE][CommonRules.MAX_DEFEND_DICE][];
+
+    static {
+        for (int attacker = 1; attacker <= CommonRules.MAX_ATTACK_DICE; attacker++) {
+            for (int defender = 1; defender <= CommonRules.MAX_DEFEND_DICE; defender++) {
+                buildTables(attacker, defender);
+            }
+        }
+    }
+
+    private CommonCombat() {
+    }
+
+    /**
+     * Rolls the dice of one round
+     *
+     * @param attackerDice Number of attacking dice, 1 to 3
+     * @param defenderDice Number of defending dice, 1 to 2
+     * @param rng Source of the roll
+     * @return The roll, to be passed to the other methods with the same dice counts
+     */
+    public static int roll(int attackerDice, int defenderDice, RandomGenerator rng) {
+        return rng.nextInt(ROLLS[attackerDice - 1][defenderDice - 1].length);
+    }
+
+    /**
+     * Gets the armies the attacker loses in a roll
+     *
+     * @param attackerDice Number of attacking dice
+     * @param defenderDice Number of defending dice
+     * @param roll The roll
+     * @return Armies lost by the attacker
+     */
+    public static int attackerLoss(int attackerDice, int defenderDice, int roll) {
+        int[] cumulative = CUMULATIVE[attackerDice - 1][defenderDice - 1];
+        int loss = 0;
+        while (roll >= cumulative[loss]) {
+            loss++;
+        }
+        return loss;
+    }
+
+    /**
+     * Gets the armies the defender loses in a roll
+     *
+     * @param attackerDice Number of attacking dice
+     * @param defenderDice Number of defending dice
+     * @param roll The roll
+     * @return Armies lost by the defender
+     */
+    public static int defenderLoss(int attackerDice, int defenderDice, int roll) {
+        return Math.min(attackerDice, defenderDice) - attackerLoss(attackerDice, defenderDice, roll);
+    }
+
+    /**
+     * Gets the probability that the attacker loses a given number of armies in one round
+     *
+     * @param attackerDice Number of attacking dice
+     * @param defenderDice Number of defending dice
+     * @param attackerLoss Armies lost by the attacker, 0 to min(attackerDice, defenderDice)
+     * @return Probability of that outcome
+     */
+    public static double probability(int attackerDice, int defenderDice, int attackerLoss) {
+        int[] cumulative = CUMULATIVE[attackerDice - 1][defenderDice - 1];
+        int below = attackerLoss > 0 ? cumulative[attackerLoss - 1] : 0;
+        return (double) (cumulative[attackerLoss] - below) / cumulative[cumulative.length - 1];
+    }
+
+    /**
+     * Works out the attacker's dice faces of a roll
+     *
+     * @param attackerDice Number of attacking dice
+     * @param defenderDice Number of defending dice
+     * @param roll The roll
+     * @return Attacker's dice, highest first
+     */
+    public static int[] attackerFaces(int attackerDice, int defenderDice, int roll) {
+        int digits = ROLLS[attackerDice - 1][defenderDice - 1][roll];
+        return faces(digits, defenderDice, attackerDice);
+    }
+
+    /**
+     * Works out the defender's dice faces of a roll
+     *
+     * @param attackerDice Number of attacking dice
+     * @param defenderDice Number of defending dice
+     * @param roll The roll
+     * @return Defender's dice, highest first
+     */
+    public static int[] defenderFaces(int attackerDice, int defenderDice, int roll) {
+        int digits = ROLLS[attackerDice - 1][defenderDice - 1][roll];
+        return faces(digits, 0, defenderDice);
+    }
+
+    /**
+     * Reads dice faces from the base-6 digits of a roll
+     *
+     * @param digits All dice of the roll, the defender's in the lowest digits
+     * @param skip Number of lowest digits to skip
+     * @param count Number of dice to read
+     * @return The dice, highest first
+     */
+    private static int[] faces(int digits, int skip, int count) {
+        for (int i = 0; i < skip; i++) {
+            digits /= SIDES;
+        }
+        int[] faces = new int[count];
+        for (int i = 0; i < count; i++) {
+            int face = digits % SIDES + 1;
+            digits /= SIDES;
+            // Insert in descending order
+            int j = i;
+            while (j > 0 && faces[j - 1] < face) {
+                faces[j] = faces[j - 1];
+                j--;
+            }
+            faces[j] = face;
+        }
+        return faces;
+    }
+
+    /**
+     * Enumerates every roll of one case and orders the rolls by attacker losses
+     *
+     * @param attacker Number of attacking dice
+     * @param defender Number of defending dice
+     */
+    private static void buildTables(int attacker, int defender) {
+        int total = 1;
+        for (int i = 0; i < attacker + defender; i++) {
+            total *= SIDES;
+        }
+        int pairs = Math.min(attacker, defender);
+
+        // Attacker losses of every roll, and how often each loss occurs
+        int[] losses = new int[total];
+        int[] counts = new int[pairs + 1];
+        for (int digits = 0; digits < total; digits++) {
+            int[] defending = faces(digits, 0, defender);
+            int[] attacking = faces(digits, defender, attacker);
+            int loss = 0;
+            for (int i = 0; i < pairs; i++) {
+                if (attacking[i] <= defending[i]) {
+                    loss++;
+                }
+            }
+            losses[digits] = loss;
+            counts[loss]++;
+        }
+
+        // Order the rolls by loss with a counting sort
+        int[] cumulative = new int[pairs + 1];
+        int[] next = new int[pairs + 1];
+        for (int loss = 0; loss <= pairs; loss++) {
+            next[loss] = loss > 0 ? cumulative[loss - 1] : 0;
+            cumulative[loss] = next[loss] + counts[loss];
+        }
+        int[] rolls = new int[total];
+        for (int digits = 0; digits < total; digits++) {
+            rolls[next[losses[digits]]++] = digits;
+        }
+
+        ROLLS[attacker - 1][defender - 1] = rolls;
+        CUMULATIVE[attacker - 1][defender - 1] = cumulative;
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * CommonEvent.java
+ * This interface represents something that happened while CommonRules applied a move.
+ * Events only describe the outcome; turning them into chat messages, logs or
+ * network traffic is up to the caller. Players and territories are referred to by
+ * their ids and indices in the game state.
+ */
+
+package common;
+
+public sealed interface CommonEvent {
+    /**
+     * A move that broke the rules and changed nothing
+     *
+     * @param player Id of the player who made the move
+     * @param reason Explanation for the player
+     */
+    record Rejected(int player, String reason) implements CommonEvent {
+    }
+
+    /**
+     * Armies placed from the player's reserve
+     *
+     * @param player Id of the placing player
+     * @param territory Index of the reinforced territory
+     * @param count Number of armies placed
+     * @param remaining Armies left in the reserve
+     */
+    record ArmiesPlaced(int player, int territory, int count, int remaining) implements CommonEvent {
+    }
+
+    /**
+     * One round of dice between two territories
+     * The dice faces are only worked out when asked for
+     *
+     * @param player Id of the attacking player
+     * @param from Index of the attacking territory
+     * @param to Index of the defending territory
+     * @param attackerDice Number of dice the attacker rolled
+     * @param defenderDice Number of dice the defender rolled
+     * @param roll The roll, as drawn by CommonCombat
+     * @param attackerLoss Armies lost by the attacker
+     * @param defenderLoss Armies lost by the defender
+     */
+    record AttackResolved(int player, int from, int to, int attackerDice, int defenderDice, int roll,
+                          int attackerLoss, int defenderLoss) implements CommonEvent {
+        /**
+         * Gets the attacker's dice faces
+         *
+         * @return Attacker's dice, highest first
+         */
+        public int[] attackerFaces() {
+            return CommonCombat.attackerFaces(attackerDice, defenderDice, roll);
+        }
+
+        /**
+         * Gets the defender's dice faces
+         *
+         * @return Defender's dice, highest first
+         */
+        public int[] defenderFaces() {
+            return CommonCombat.defenderFaces(attackerDice, defenderDice, roll);
+        }
+    }
+
+    /**
+     * A whole battle fought as repeated rounds of dice
+     *
+     * @param player Id of the attacking player
+     * @param from Index of the attacking territory
+     * @param to Index of the defending territory
+     * @param rounds Number of rounds rolled
+     * @param attackerLoss Armies lost by the attacker in all rounds
+     * @param defenderLoss Armies lost by the defender in all rounds
+     * @param captured Whether the defending territory fell
+     */
+    record BlitzResolved(int player, int from, int to, int rounds, int attackerLoss, int defenderLoss,
+                         boolean captured) implements CommonEvent {
+    }
+
+    /**
+     * A territory taken over after its last army was defeated
+     *
+     * @param player Id of the new owner
+     * @param from Index of the attacking territory
+     * @param to Index of the captured territory
+     * @param defender Id of the previous owner, or -1 if it was neutral
+     * @param armies Armies moved into the captured territory
+     */
+    record TerritoryCaptured(int player, int from, int to, int defender, int armies) implements CommonEvent {
+    }
+
+    /**
+     * Armies moved between two of the player's territories
+     *
+     * @param player Id of the moving player
+     * @param from Index of the source territory
+     * @param to Index of the destination territory
+     * @param count Number of armies moved
+     */
+    record Fortified(int player, int from, int to, int count) implements CommonEvent {
+    }
+
+    /**
+     * The turn passed to the next player, who received reinforcements
+     *
+     * @param from Id of the player whose turn ended
+     * @param to Id of the player whose turn begins
+     * @param reinforcements Armies added to the new player's reserve
+     */
+    record TurnPassed(int from, int to, int reinforcements) implements CommonEvent {
+    }
+
+    /**
+     * A player lost their last territory
+     *
+     * @param player Id of the eliminated player
+     */
+    record PlayerEliminated(int player) implements CommonEvent {
+    }
+
+    /**
+     * Only one player still holds territories
+     *
+     * @param player Id of the winner
+     */
+    record GameWon(int player) implements CommonEvent {
+    }
+}
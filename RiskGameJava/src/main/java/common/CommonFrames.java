@@ -0,0 +1,77 @@
+/**
+ * CommonFrames.java
+ * This class defines the wire framing shared by the Risk game client and server.
+ * Every object sent over the network is written as a 4-byte big-endian length
+ * followed by that many payload bytes produced by a CommonCodec, so a receiver can
+ * split the byte stream into whole messages without blocking on a partial one.
+ */
+
+package common;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class CommonFrames {
+    /** Number of bytes used by the length prefix of every frame */
+    public static final int HEADER_BYTES = 4;
+    /** Largest payload a peer is allowed to send in a single frame */
+    public static final int MAX_FRAME_BYTES = 1 << 20;
+
+    /**
+     * Encodes an object into a complete frame ready to be written to a channel
+     *
+     * @param codec Codec producing the payload
+     * @param payload The object to encode
+     * @return Read-ready buffer containing the length prefix and the payload
+     */
+    public static ByteBuffer toFrame(CommonCodec codec, Object payload) throws IOException {
+        byte[] body = codec.encode(payload);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + body.length);
+        frame.putInt(body.length);
+        frame.put(body);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Writes an object as a single frame to a blocking stream
+     *
+     * @param out Stream to write to
+     * @param codec Codec producing the payload
+     * @param payload The object to send
+     */
+    public static void writeFrame(DataOutputStream out, CommonCodec codec, Object payload) throws IOException {
+        byte[] body = codec.encode(payload);
+        out.writeInt(body.length);
+        out.write(body);
+        out.flush();
+    }
+
+    /**
+     * Reads a single frame from a blocking stream and decodes its payload
+     *
+     * @param in Stream to read from
+     * @param codec Codec decoding the payload
+     * @return The decoded object
+     */
+    public static Object readFrame(DataInputStream in, CommonCodec codec) throws IOException {
+        int length = in.readInt();
+        checkLength(length);
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return codec.decode(body, 0, length);
+    }
+
+    /**
+     * Validates a frame length read from the network
+     *
+     * @param length The announced payload length
+     */
+    public static void checkLength(int length) throws IOException {
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+    }
+}
@@ -1,8 +1,8 @@
 /**
  * CommonMapCreation.java
  * This class is responsible for generating the game map for Risk.
- * It creates territories, defines their continents, and establishes
- * adjacency relationships between territories.
+ * It defines the continents, territories and adjacency of the standard map
+ * as a shared CommonTopology, and creates game states on top of it.
  */
 
 package common;
@@ -11,8 +11,40 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class CommonMapCreation {
+    /** Topology of the standard map, shared by all games */
+    private static final CommonTopology STANDARD = CommonTopology.register(createStandardTopology());
+
+    /**
+     * Gets the topology of the standard map
+     * 
+     * @return The shared standard topology
+     */
+    public static CommonTopology standardTopology() {
+        return STANDARD;
+    }
+
+    /**
+     * Generates the complete standard game map with all territories
+     * 
+     * @return Map of territories keyed by territory name
+     */
+    public static Map<String, CommonTerritory> generateMap() {
+        return generateMap(STANDARD);
+    }
+
     /**
-     * Generates the complete game map with all territories and their connections
+     * Generates fresh, unowned territories for every territory of a topology
+     * The territories are views onto a new game state without players
+     * 
+     * @param topology The map topology
+     * @return Map of territories keyed by territory name
+     */
+    public static Map<String, CommonTerritory> generateMap(CommonTopology topology) {
+        return new HashMap<>(new CommonState(topology).getTerritories());
+    }
+
+    /**
+     * Defines the standard map with all territories and their connections
      * The map includes territories from six continents:
      * - North America
      * - South America
@@ -21,10 +53,18 @@ public class CommonMapCreation {
      * - Asia
      * - Oceania
      * 
-     * @return Map of territories keyed by territory name
+     * @return The standard topology
      */
-    public static Map<String, CommonTerritory> generateMap() {
-        Map<String, CommonTerritory> map = new HashMap<>();
+    private static CommonTopology createStandardTopology() {
+        CommonTopology.Builder map = new CommonTopology.Builder();
+
+        // Continents with their control bonuses
+        map.addContinent("North America", 5);
+        map.addContinent("South America", 2);
+        map.addContinent("Europe", 5);
+        map.addContinent("Africa", 3);
+        map.addContinent("Asia", 7);
+        map.addContinent("Oceania", 2);
 
         // North American territories
         addTerritory(map, "Alaska", "North America", "NorthWestTerritory", "Alberta", "Kamchatka");
@@ -84,25 +124,18 @@ public class CommonMapCreation {
         addTerritory(map, "EasternAustralia", "Oceania", "Indonesia", "WesternAustralia", "NewGuinea", "Latifland");
         addTerritory(map, "Latifland", "Oceania", "EasternAustralia", "NewGuinea");
 
-        return map;
+        return map.build();
     }
 
     /**
-     * Helper method to create a territory and add it to the map
-     * Creates a new territory with the given name and continent,
-     * establishes adjacency relationships with neighboring territories,
-     * and adds it to the map
+     * Helper method to add a territory to the topology being built
      * 
-     * @param map Map to add the territory to
+     * @param map Topology builder to add the territory to
      * @param name Name of the territory
      * @param continent Continent the territory belongs to
      * @param neighbors Names of adjacent territories
      */
-    private static void addTerritory(Map<String, CommonTerritory> map, String name, String continent, String... neighbors) {
-        CommonTerritory territory = new CommonTerritory(name, continent);
-        for (String neighbor : neighbors) {
-            territory.addAdjacent(neighbor);
-        }
-        map.put(name, territory);
+    private static void addTerritory(CommonTopology.Builder map, String name, String continent, String... neighbors) {
+        map.addTerritory(name, continent, neighbors);
     }
 }
@@ -0,0 +1,463 @@
+/**
+ * CommonMcts.java
+ * This class chooses moves with Monte Carlo tree search over the rules engine.
+ * The tree covers the searching player's own turn: placements, attacks, fortifications
+ * and ending the turn. Each iteration replays a path of the tree on a copy of the state
+ * with fresh dice, so the tree holds action sequences rather than exact positions, then
+ * plays on with CommonBot players for a few turns and scores the position reached.
+ * Several independent trees are grown in parallel as fork/join tasks and their root
+ * statistics are merged; the most visited move is played.
+ */
+
+package common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public final class CommonMcts {
+    /** UCT exploration constant for rewards between 0 and 1 */
+    private static final double EXPLORATION = 0.7;
+    /** Turns every player plays in a rollout before the position is scored */
+    private static final int ROLLOUT_ROUNDS = 2;
+    /** Most moves in one rollout */
+    private static final int MAX_ROLLOUT_MOVES = 300;
+
+    /** Action kinds, stored in the top bits of an action */
+    private static final int PLACE = 0;
+    private static final int ATTACK = 1;
+    private static final int FORTIFY = 2;
+    private static final int END_TURN = 3;
+
+    private CommonMcts() {
+    }
+
+    /**
+     * Chooses the next move of a player
+     * The state is not changed. The search runs on the given pool and returns once
+     * the time budget is used up, or at once if there is only one sensible move.
+     *
+     * @param state Current game state
+     * @param player Id of the player to move, whose turn it must be
+     * @param pool Pool running the search
+     * @param budgetNanos Time the search may take
+     * @param seed Seed of the search's dice and rollouts
+     * @return The chosen move
+     */
+    public static CommonMessages chooseMove(CommonState state, int player, ForkJoinPool pool, long budgetNanos, long seed) {
+        long[] candidates = candidates(state, player);
+        long best = candidates[0];
+        if (candidates.length > 1) {
+            long deadline = System.nanoTime() + budgetNanos;
+            SplittableRandom seeds = new SplittableRandom(seed);
+            List<Search> searches = new ArrayList<>();
+            for (int i = 0; i < pool.getParallelism(); i++) {
+                searches.add(new Search(state, player, deadline, seeds.split()));
+            }
+            Node merged = pool.invoke(new Merge(searches));
+
+            int mostVisits = -1;
+            for (int i = 0; i < merged.size; i++) {
+                if (merged.children[i].visits > mostVisits) {
+                    mostVisits = merged.children[i].visits;
+                    best = merged.actions[i];
+                }
+            }
+        }
+        return toMessage(state, player, best);
+    }
+
+    /**
+     * Runs the searches in parallel and adds up the statistics of their root moves
+     * Like every ForkJoinTask it is Serializable, but it is never serialized
+     */
+    @SuppressWarnings("serial")
+    private static final class Merge extends RecursiveTask<Node> {
+        private final List<Search> searches;
+
+        Merge(List<Search> searches) {
+            this.searches = searches;
+        }
+
+        @Override
+        protected Node compute() {
+            invokeAll(searches);
+            Node merged = new Node();
+            for (Search search : searches) {
+                Node root = search.join();
+                for (int i = 0; i < root.size; i++) {
+                    Node child = merged.child(root.actions[i]);
+                    child.visits += root.children[i].visits;
+                    child.value += root.children[i].value;
+                }
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * One independent search tree, grown until the deadline
+     * Never serialized, like Merge
+     */
+    @SuppressWarnings("serial")
+    private static final class Search extends RecursiveTask<Node> {
+        private final CommonState root;             // Position to search from
+        private final int player;                   // Searching player
+        private final long deadline;                // System.nanoTime() at which to stop
+        private final SplittableRandom rng;         // Dice and choices of this tree
+        private final CommonBot[] bots;             // Rollout players, one per seat
+        private final List<CommonEvent> events = new ArrayList<>(); // Reused event list
+
+        Search(CommonState root, int player, long deadline, SplittableRandom rng) {
+            this.root = root;
+            this.player = player;
+            this.deadline = deadline;
+            this.rng = rng;
+            this.bots = new CommonBot[root.getPlayerCount()];
+            for (int i = 0; i < bots.length; i++) {
+                bots[i] = new CommonBot(false, rng.split());
+            }
+        }
+
+        @Override
+        protected Node compute() {
+            Node tree = new Node();
+            List<Node> path = new ArrayList<>();
+            do {
+                iterate(tree, path);
+            } while (System.nanoTime() < deadline);
+            return tree;
+        }
+
+        /**
+         * Selects a path down the tree, expands one move, plays a rollout and backs up the score
+         *
+         * @param tree Root of the tree
+         * @param path Reused list of the nodes visited
+         */
+        private void iterate(Node tree, List<Node> path) {
+            CommonState state = root.copy();
+            path.clear();
+            path.add(tree);
+            Node node = tree;
+            boolean over = false;
+
+            // Selection and expansion within the player's turn
+            while (!over && state.getCurrentTurn() == player) {
+                long[] moves = candidates(state, player);
+                long action = select(node, moves);
+                boolean expanded = node.find(action) < 0;
+                node = node.child(action);
+                path.add(node);
+                over = apply(state, player, action);
+                if (expanded) {
+                    break;
+                }
+            }
+
+            double reward = over ? score(state, player) : rollout(state);
+            for (Node visited : path) {
+                visited.visits++;
+                visited.value += reward;
+            }
+        }
+
+        /**
+         * Chooses the move to follow from a node: an untried move if there is one, otherwise by UCT
+         *
+         * @param node Current node
+         * @param moves Legal moves in the current state
+         * @return The chosen move
+         */
+        private long select(Node node, long[] moves) {
+            int untried = 0;
+            for (long move : moves) {
+                if (node.find(move) < 0) {
+                    untried++;
+                }
+            }
+            if (untried > 0) {
+                int pick = rng.nextInt(untried);
+                for (long move : moves) {
+                    if (node.find(move) < 0 && pick-- == 0) {
+                        return move;
+                    }
+                }
+            }
+
+            long best = moves[0];
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double logVisits = Math.log(Math.max(1, node.visits));
+            for (long move : moves) {
+                Node child = node.children[node.find(move)];
+                double value = child.value / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = move;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Plays on with the built-in bots for a few rounds and scores the result
+         *
+         * @param state State to play on, changed in place
+         * @return Score of the searching player
+         */
+        private double rollout(CommonState state) {
+            for (CommonBot bot : bots) {
+                bot.reset();
+            }
+            int turnsLeft = ROLLOUT_ROUNDS * state.getPlayerCount();
+            for (int moves = 0; moves < MAX_ROLLOUT_MOVES && turnsLeft > 0; moves++) {
+                int current = state.getCurrentTurn();
+                events.clear();
+                CommonRules.applyInPlace(state, current, bots[current].nextMove(state, current), rng, events);
+                for (CommonEvent event : events) {
+                    if (event instanceof CommonEvent.GameWon) {
+                        return score(state, player);
+                    } else if (event instanceof CommonEvent.TurnPassed) {
+                        turnsLeft--;
+                    }
+                }
+            }
+            return score(state, player);
+        }
+
+        /**
+         * Applies a move of the searching player
+         *
+         * @param state State to change
+         * @param player Id of the moving player
+         * @param action The move
+         * @return true if the game is over
+         */
+        private boolean apply(CommonState state, int player, long action) {
+            events.clear();
+            int from = from(action);
+            int to = to(action);
+            switch (kind(action)) {
+                case PLACE -> CommonRules.placeArmies(state, player, to, state.getReserve(player), events);
+                case ATTACK -> CommonRules.attack(state, player, from, to,
+                        Math.min(CommonRules.MAX_ATTACK_DICE, state.getArmies(from) - 1), rng, events);
+                case FORTIFY -> CommonRules.fortify(state, player, from, to, state.getArmies(from) - 1, events);
+                default -> CommonRules.endTurn(state, player, events);
+            }
+            for (CommonEvent event : events) {
+                if (event instanceof CommonEvent.GameWon) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Scores a position for a player
+     * A win scores 1 and elimination 0; otherwise the average of the player's share
+     * of the owned territories and of all armies.
+     *
+     * @param state The position
+     * @param player Id of the player
+     * @return Score between 0 and 1
+     */
+    static double score(CommonState state, int player) {
+        int territories = state.getTerritoryCount(player);
+        if (territories == 0) {
+            return 0;
+        }
+        int ownedTerritories = 0;
+        for (int id = 0; id < state.getPlayerCount(); id++) {
+            ownedTerritories += state.getTerritoryCount(id);
+        }
+        if (ownedTerritories == territories) {
+            return 1;
+        }
+        long armies = 0;
+        long allArmies = 0;
+        for (int t = 0; t < state.getTopology().getTerritoryCount(); t++) {
+            allArmies += state.getArmies(t);
+            if (state.getOwnerId(t) == player) {
+                armies += state.getArmies(t);
+            }
+        }
+        return 0.5 * territories / ownedTerritories + 0.5 * armies / Math.max(1, allArmies);
+    }
+
+    /**
+     * Lists the sensible moves of a player
+     * All reserve armies are placed at once on a territory next to an enemy. Attacks
+     * roll as many dice as possible, and fortifications move every army but one from
+     * a territory without enemy neighbours to a neighbour that has some, so the tree
+     * cannot move armies back and forth. Ending the turn is always possible.
+     *
+     * @param state Current game state
+     * @param player Id of the player, whose turn it must be
+     * @return Encoded moves, never empty
+     */
+    static long[] candidates(CommonState state, int player) {
+        CommonTopology topology = state.getTopology();
+        int count = topology.getTerritoryCount();
+        long[] moves = new long[16];
+        int size = 0;
+
+        if (state.getReserve(player) > 0) {
+            int fallback = -1;
+            for (int t = 0; t < count; t++) {
+                if (!state.ownsTerritory(player, t)) {
+                    continue;
+                }
+                if (fallback < 0) {
+                    fallback = t;
+                }
+                if (bordersEnemy(state, player, t)) {
+                    moves = add(moves, size++, encode(PLACE, 0, t));
+                }
+            }
+            if (size == 0 && fallback >= 0) {
+                moves = add(moves, size++, encode(PLACE, 0, fallback));
+            }
+            if (size > 0) {
+                return Arrays.copyOf(moves, size);
+            }
+        }
+
+        for (int from = 0; from < count; from++) {
+            if (!state.ownsTerritory(player, from) || state.getArmies(from) < 2) {
+                continue;
+            }
+            boolean interior = !bordersEnemy(state, player, from);
+            for (int to : topology.getAdjacent(from)) {
+                if (!state.ownsTerritory(player, to)) {
+                    moves = add(moves, size++, encode(ATTACK, from, to));
+                } else if (interior && bordersEnemy(state, player, to)) {
+                    moves = add(moves, size++, encode(FORTIFY, from, to));
+                }
+            }
+        }
+        moves = add(moves, size++, encode(END_TURN, 0, 0));
+        return Arrays.copyOf(moves, size);
+    }
+
+    /**
+     * Turns an encoded move into the message a player would send
+     *
+     * @param state Current game state
+     * @param player Id of the moving player
+     * @param action The encoded move
+     * @return The move as a message
+     */
+    private static CommonMessages toMessage(CommonState state, int player, long action) {
+        CommonTopology topology = state.getTopology();
+        int from = from(action);
+        int to = to(action);
+        return switch (kind(action)) {
+            case PLACE -> new CommonMessages(CommonMessages.Type.PLACE_ARMY, null, topology.getTerritoryName(to),
+                    state.getReserve(player));
+            case ATTACK -> new CommonMessages(CommonMessages.Type.ATTACK, topology.getTerritoryName(from),
+                    topology.getTerritoryName(to), Math.min(CommonRules.MAX_ATTACK_DICE, state.getArmies(from) - 1));
+            case FORTIFY -> new CommonMessages(CommonMessages.Type.FORTIFY, topology.getTerritoryName(from),
+                    topology.getTerritoryName(to), state.getArmies(from) - 1);
+            default -> new CommonMessages(CommonMessages.Type.END_TURN, null, null, 0);
+        };
+    }
+
+    /**
+     * Checks whether a territory has a neighbour owned by someone else
+     *
+     * @param state Game state
+     * @param player Id of the player
+     * @param territory Territory index
+     * @return true if a neighbour is not owned by the player
+     */
+    private static boolean bordersEnemy(CommonState state, int player, int territory) {
+        for (int neighbour : state.getTopology().getAdjacent(territory)) {
+            if (!state.ownsTerritory(player, neighbour)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends a move to an array, growing it when full
+     *
+     * @param moves The array
+     * @param index Position of the new move
+     * @param move The move
+     * @return The array, or a larger copy
+     */
+    private static long[] add(long[] moves, int index, long move) {
+        if (index == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[index] = move;
+        return moves;
+    }
+
+    private static long encode(int kind, int from, int to) {
+        return ((long) kind << 40) | ((long) from << 20) | to;
+    }
+
+    private static int kind(long action) {
+        return (int) (action >>> 40);
+    }
+
+    private static int from(long action) {
+        return (int) (action >>> 20) & 0xfffff;
+    }
+
+    private static int to(long action) {
+        return (int) action & 0xfffff;
+    }
+
+    /**
+     * A node of a search tree: the statistics of a move sequence and its continuations
+     */
+    private static final class Node {
+        private long[] actions = new long[4];   // Moves leading to the children
+        private Node[] children = new Node[4];  // Children, in the order of actions
+        private int size;                       // Number of children
+        private int visits;                     // Iterations through this node
+        private double value;                   // Summed score of those iterations
+
+        /**
+         * Finds the child reached by a move
+         *
+         * @param action The move
+         * @return Index of the child, or -1 if the move was never tried
+         */
+        int find(long action) {
+            for (int i = 0; i < size; i++) {
+                if (actions[i] == action) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Gets the child reached by a move, creating it if needed
+         *
+         * @param action The move
+         * @return The child
+         */
+        Node child(long action) {
+            int i = find(action);
+            if (i >= 0) {
+                return children[i];
+            }
+            if (size == actions.length) {
+                actions = Arrays.copyOf(actions, size * 2);
+                children = Arrays.copyOf(children, size * 2);
+            }
+            actions[size] = action;
+            children[size] = new Node();
+            return children[size++];
+        }
+    }
+}
@@ -38,7 +38,11 @@ public class CommonMessages implements Serializable {
         /** Confirmation to play another game */
         PLAY_AGAIN,
         /** Player exiting the game */
-        EXIT_GAME
+        EXIT_GAME,
+        /** Attacking repeatedly until the target falls or the attacker is down to armyCount armies */
+        BLITZ,
+        /** Request for the full game state from a player whose copy no longer matches the server's */
+        RESYNC
     }
 
     /** Type of the message */
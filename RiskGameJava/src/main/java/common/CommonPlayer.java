@@ -1,43 +1,39 @@
 /**
  * CommonPlayer.java
  * This class represents a player in the Risk game.
- * Each player has a name, color, list of owned territories,
+ * Each player has a name, color, set of owned territories,
  * available armies for placement, and turn status.
- * The class is serializable to allow transmission between client and server.
+ * A player is a lightweight view onto its id in a CommonState, which stores
+ * all of these values; players are created with CommonState.addPlayer.
  */
 
 package common;
 
-import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public class CommonPlayer implements Serializable {
-    /** Player's name */
-    private String name;
-    /** Player's color for UI representation */
-    private String color;
-    /** List of territory names owned by this player */
-    private List<String> territories;
-    /** Number of armies available for placement */
-    private int availableArmies;
-    /** Whether it is currently this player's turn */
-    private boolean isTurn;
-    /** Serial version UID for serialization compatibility */
-    private static final long serialVersionUID = 1L;
+public class CommonPlayer {
+    /** Number of armies a new player has available for placement */
+    public static final int DEFAULT_ARMIES = 20;
+    /** Maximum number of players in one game */
+    public static final int MAX_PLAYERS = 6;
+    /** Colors of the players in seat order, one per seat */
+    public static final List<String> COLORS = List.of("RED", "BLUE", "GREEN", "YELLOW", "PURPLE", "ORANGE");
+
+    /** Game state holding the player's values */
+    private final CommonState state;
+    /** Index of this player in its game state */
+    private final int id;
 
     /**
-     * Constructor for CommonPlayer
+     * Constructor for CommonPlayer, used by CommonState
      * 
-     * @param name Player's name
-     * @param color Player's color
+     * @param state Game state holding the player's values
+     * @param id Player id in the state
      */
-    public CommonPlayer(String name, String color) {
-        this.name = name;
-        this.color = color;
-        this.territories = new ArrayList<>();
-        this.availableArmies = 20;
-        this.isTurn = false;
+    CommonPlayer(CommonState state, int id) {
+        this.state = state;
+        this.id = id;
     }
 
     /**
@@ -46,7 +42,16 @@ public class CommonPlayer implements Serializable {
      * @return Player name
      */
     public String getName() {
-        return name;
+        return state.getPlayerName(id);
+    }
+
+    /**
+     * Gets the player's id in its game state
+     * 
+     * @return Player id
+     */
+    public int getId() {
+        return id;
     }
 
     /**
@@ -55,52 +60,60 @@ public class CommonPlayer implements Serializable {
      * @return Player color
      */
     public String getColor() {
-        return color;
+        return state.getPlayerColor(id);
     }
 
     /**
-     * Gets the list of territories owned by this player
+     * Gets the names of the territories owned by this player, in topology order
      * 
-     * @return List of territory names
+     * @return New list of territory names
      */
     public List<String> getTerritories() {
-        return territories;
+        CommonTopology topology = state.getTopology();
+        List<String> names = new ArrayList<>();
+        for (int t = 0; t < topology.getTerritoryCount(); t++) {
+            if (state.ownsTerritory(id, t)) {
+                names.add(topology.getTerritoryName(t));
+            }
+        }
+        return names;
     }
 
     /**
-     * Gets the number of armies available for placement
+     * Gets the number of territories owned by this player
      * 
-     * @return Number of available armies
+     * @return Number of owned territories
      */
-    public int getAvailableArmies() {
-        return availableArmies;
+    public int getTerritoryCount() {
+        return state.getTerritoryCount(id);
     }
 
     /**
-     * Sets the number of armies available for placement
+     * Checks whether this player owns a territory
      * 
-     * @param availableArmies New number of available armies
+     * @param territory Territory index
+     * @return true if the player owns the territory
      */
-    public void setAvailableArmies(int availableArmies) {
-        this.availableArmies = availableArmies;
+    public boolean ownsTerritory(int territory) {
+        return state.ownsTerritory(id, territory);
     }
 
     /**
-     * Adds a territory to the player's owned territories
+     * Gets the number of armies available for placement
      * 
-     * @param territory Name of the territory to add
+     * @return Number of available armies
      */
-    public void addTerritory(String territory) {
-        territories.add(territory);
+    public int getAvailableArmies() {
+        return state.getReserve(id);
     }
 
     /**
-     * Removes a territory from the player's owned territories
+     * Sets the number of armies available for placement
      * 
-     * @param territory Name of the territory to remove
+     * @param availableArmies New number of available armies
      */
-    public void removeTerritory(String territory) {
-        territories.remove(territory);
+    public void setAvailableArmies(int availableArmies) {
+        state.setReserve(id, availableArmies);
     }
 
     /**
@@ -109,7 +122,7 @@ public class CommonPlayer implements Serializable {
      * @return true if it is this player's turn
      */
     public boolean isTurn() {
-        return isTurn;
+        return state.isTurn(id);
     }
 
     /**
@@ -118,6 +131,6 @@ public class CommonPlayer implements Serializable {
      * @param isTurn New turn status
      */
     public void setTurn(boolean isTurn) {
-        this.isTurn = isTurn;
+        state.setTurn(id, isTurn);
     }
 }
@@ -0,0 +1,358 @@
+/**
+ * CommonRules.java
+ * This class is the Risk rules engine.
+ * It validates and applies placements, attacks, blitzes, fortifications and turn changes
+ * to a CommonState and reports what happened as CommonEvents. It never sends,
+ * logs or keeps state of its own, and all randomness comes from the generator
+ * passed in, so the server, bots, simulations and replays all play by exactly
+ * the same rules and the same seed always produces the same game.
+ */
+
+package common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+public final class CommonRules {
+    /** Most dice an attacker may roll */
+    public static final int MAX_ATTACK_DICE = 3;
+    /** Most dice a defender may roll */
+    public static final int MAX_DEFEND_DICE = 2;
+
+    /**
+     * The outcome of applying a move to a copy of a state
+     *
+     * @param state The new state
+     * @param events What happened, in order
+     */
+    public record Result(CommonState state, List<CommonEvent> events) {
+    }
+
+    private CommonRules() {
+    }
+
+    /**
+     * Applies a move to a copy of the state
+     * The given state is left unchanged
+     *
+     * @param state Current game state
+     * @param player Id of the player making the move
+     * @param move The move
+     * @param rng Source of the dice
+     * @return The new state and the events of the move
+     */
+    public static Result apply(CommonState state, int player, CommonMessages move, RandomGenerator rng) {
+        CommonState next = state.copy();
+        List<CommonEvent> events = new ArrayList<>();
+        applyInPlace(next, player, move, rng, events);
+        return new Result(next, events);
+    }
+
+    /**
+     * Applies a move directly to the state
+     * Used by the server and by simulations, which own their state and need no copy.
+     * Message types that are not game moves are ignored.
+     *
+     * @param state Game state to change
+     * @param player Id of the player making the move
+     * @param move The move
+     * @param rng Source of the dice
+     * @param events Receives the events of the move
+     */
+    public static void applyInPlace(CommonState state, int player, CommonMessages move, RandomGenerator rng, List<CommonEvent> events) {
+        CommonTopology topology = state.getTopology();
+        switch (move.getType()) {
+            case PLACE_ARMY -> placeArmies(state, player, topology.indexOf(move.getTo()), move.getArmyCount(), events);
+            case ATTACK -> attack(state, player, topology.indexOf(move.getFrom()), topology.indexOf(move.getTo()),
+                    move.getArmyCount(), rng, events);
+            case BLITZ -> blitz(state, player, topology.indexOf(move.getFrom()), topology.indexOf(move.getTo()),
+                    move.getArmyCount(), rng, events);
+            case FORTIFY -> fortify(state, player, topology.indexOf(move.getFrom()), topology.indexOf(move.getTo()),
+                    move.getArmyCount(), events);
+            case END_TURN -> endTurn(state, player, events);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Places armies from the player's reserve on one of their territories
+     *
+     * @param state Game state to change
+     * @param player Id of the placing player
+     * @param to Territory index, or -1 if unknown
+     * @param requested Number of armies the player wants to place
+     * @param events Receives the events of the move
+     */
+    public static void placeArmies(CommonState state, int player, int to, int requested, List<CommonEvent> events) {
+        if (state.getCurrentTurn() != player) {
+            events.add(new CommonEvent.Rejected(player, "It's not your turn!"));
+            return;
+        }
+        int available = state.getReserve(player);
+        if (available <= 0) {
+            events.add(new CommonEvent.Rejected(player, "You have no armies left to place."));
+            return;
+        }
+        if (to < 0 || !state.ownsTerritory(player, to)) {
+            events.add(new CommonEvent.Rejected(player, "You can only place armies on your own territory!"));
+            return;
+        }
+        if (requested <= 0) {
+            events.add(new CommonEvent.Rejected(player, "You must place at least one army!"));
+            return;
+        }
+
+        int toPlace = Math.min(available, requested);
+        state.setArmies(to, state.getArmies(to) + toPlace);
+        state.setReserve(player, available - toPlace);
+        events.add(new CommonEvent.ArmiesPlaced(player, to, toPlace, available - toPlace));
+    }
+
+    /**
+     * Checks whether an attack is legal
+     *
+     * @param state Game state
+     * @param player Id of the attacking player
+     * @param from Attacking territory index, or -1 if unknown
+     * @param to Defending territory index, or -1 if unknown
+     * @return true if the attack is valid
+     */
+    public static boolean isValidAttack(CommonState state, int player, int from, int to) {
+        return from >= 0 && to >= 0
+                && state.getCurrentTurn() == player
+                && state.ownsTerritory(player, from)
+                && !state.ownsTerritory(player, to)
+                && state.getArmies(from) > 1
+                && state.getTopology().isAdjacent(from, to);
+    }
+
+    /**
+     * Rolls one round of dice between two territories and captures the defender if it is emptied
+     *
+     * @param state Game state to change
+     * @param player Id of the attacking player
+     * @param from Attacking territory index, or -1 if unknown
+     * @param to Defending territory index, or -1 if unknown
+     * @param armyCount Number of dice the attacker wants to roll, also the armies to move in on capture
+     * @param rng Source of the dice
+     * @param events Receives the events of the move
+     */
+    public static void attack(CommonState state, int player, int from, int to, int armyCount, RandomGenerator rng, List<CommonEvent> events) {
+        if (!isValidAttack(state, player, from, to)) {
+            events.add(new CommonEvent.Rejected(player, "Invalid attack!"));
+            return;
+        }
+        if (armyCount <= 0) {
+            events.add(new CommonEvent.Rejected(player, "You must attack with at least one army!"));
+            return;
+        }
+
+        // Calculate number of dice for attacker and defender
+        int maxAttackerDice = Math.min(MAX_ATTACK_DICE, state.getArmies(from) - 1);
+        int attackerDice = Math.min(armyCount, maxAttackerDice);
+        int defenderDice = Math.min(MAX_DEFEND_DICE, state.getArmies(to));
+
+        // Roll all dice at once and read the losses of the highest pairs
+        int roll = CommonCombat.roll(attackerDice, defenderDice, rng);
+        int attackerLoss = CommonCombat.attackerLoss(attackerDice, defenderDice, roll);
+        int defenderLoss = Math.min(attackerDice, defenderDice) - attackerLoss;
+
+        state.setArmies(from, state.getArmies(from) - attackerLoss);
+        state.setArmies(to, state.getArmies(to) - defenderLoss);
+        events.add(new CommonEvent.AttackResolved(player, from, to, attackerDice, defenderDice, roll, attackerLoss, defenderLoss));
+
+        if (state.getArmies(to) <= 0) {
+            capture(state, player, from, to, attackerDice - attackerLoss, armyCount - attackerLoss, events);
+        }
+    }
+
+    /**
+     * Fights a whole battle between two territories in one move
+     * Rounds are rolled with as many dice as possible until the defender is emptied or
+     * the attacking territory is down to the given number of armies. The battle is
+     * reported as one summary instead of one event per round.
+     *
+     * @param state Game state to change
+     * @param player Id of the attacking player
+     * @param from Attacking territory index, or -1 if unknown
+     * @param to Defending territory index, or -1 if unknown
+     * @param stopAt Armies at which the attacker stops, at least 1
+     * @param rng Source of the dice
+     * @param events Receives the events of the move
+     */
+    public static void blitz(CommonState state, int player, int from, int to, int stopAt, RandomGenerator rng, List<CommonEvent> events) {
+        if (!isValidAttack(state, player, from, to)) {
+            events.add(new CommonEvent.Rejected(player, "Invalid attack!"));
+            return;
+        }
+        int keep = Math.max(1, stopAt);
+        if (state.getArmies(from) <= keep) {
+            events.add(new CommonEvent.Rejected(player, "Not enough armies to attack (stopping at " + keep + ")!"));
+            return;
+        }
+
+        int attackerArmies = state.getArmies(from);
+        int defenderArmies = state.getArmies(to);
+        int rounds = 0;
+        int attackerDice = 0;
+        int lastLoss = 0;
+        while (attackerArmies > keep && defenderArmies > 0) {
+            attackerDice = Math.min(MAX_ATTACK_DICE, attackerArmies - 1);
+            int defenderDice = Math.min(MAX_DEFEND_DICE, defenderArmies);
+            int roll = CommonCombat.roll(attackerDice, defenderDice, rng);
+            lastLoss = CommonCombat.attackerLoss(attackerDice, defenderDice, roll);
+            attackerArmies -= lastLoss;
+            defenderArmies -= Math.min(attackerDice, defenderDice) - lastLoss;
+            rounds++;
+        }
+
+        int attackerLoss = state.getArmies(from) - attackerArmies;
+        int defenderLoss = state.getArmies(to) - defenderArmies;
+        state.setArmies(from, attackerArmies);
+        state.setArmies(to, defenderArmies);
+        events.add(new CommonEvent.BlitzResolved(player, from, to, rounds, attackerLoss, defenderLoss, defenderArmies <= 0));
+
+        if (defenderArmies <= 0) {
+            capture(state, player, from, to, attackerDice - lastLoss, attackerDice - lastLoss, events);
+        }
+    }
+
+    /**
+     * Takes over an emptied territory and checks whether its owner is eliminated
+     * At least the surviving attacking dice move in, so the territory is never left empty.
+     *
+     * @param state Game state to change
+     * @param player Id of the attacking player
+     * @param from Attacking territory index
+     * @param to Captured territory index
+     * @param survivors Number of attacking dice that survived the last round
+     * @param requested Number of armies the attacker wants to move in
+     * @param events Receives the events of the move
+     */
+    private static void capture(CommonState state, int player, int from, int to, int survivors, int requested, List<CommonEvent> events) {
+        int defender = state.getOwnerId(to);
+        state.setOwner(to, player);
+        int moveIn = Math.min(state.getArmies(from) - 1, Math.max(survivors, requested));
+        state.setArmies(from, state.getArmies(from) - moveIn);
+        state.setArmies(to, moveIn);
+        events.add(new CommonEvent.TerritoryCaptured(player, from, to, defender, moveIn));
+
+        if (defender >= 0 && state.getTerritoryCount(defender) == 0) {
+            events.add(new CommonEvent.PlayerEliminated(defender));
+            checkWinner(state, events);
+        }
+    }
+
+    /**
+     * Moves armies between two adjacent territories of the player
+     *
+     * @param state Game state to change
+     * @param player Id of the moving player
+     * @param from Source territory index, or -1 if unknown
+     * @param to Destination territory index, or -1 if unknown
+     * @param count Number of armies to move
+     * @param events Receives the events of the move
+     */
+    public static void fortify(CommonState state, int player, int from, int to, int count, List<CommonEvent> events) {
+        if (state.getCurrentTurn() != player) {
+            events.add(new CommonEvent.Rejected(player, "It's not your turn!"));
+            return;
+        }
+        if (from < 0 || to < 0 || !state.ownsTerritory(player, from) || !state.ownsTerritory(player, to)) {
+            events.add(new CommonEvent.Rejected(player, "You must own both territories!"));
+            return;
+        }
+        if (!state.getTopology().isAdjacent(from, to)) {
+            events.add(new CommonEvent.Rejected(player, "Territories are not adjacent!"));
+            return;
+        }
+        if (count <= 0 || state.getArmies(from) <= count) {
+            events.add(new CommonEvent.Rejected(player, "Not enough armies to move (leave at least 1)!"));
+            return;
+        }
+
+        state.setArmies(from, state.getArmies(from) - count);
+        state.setArmies(to, state.getArmies(to) + count);
+        events.add(new CommonEvent.Fortified(player, from, to, count));
+    }
+
+    /**
+     * Ends the player's turn
+     * Moves made out of turn are ignored
+     *
+     * @param state Game state to change
+     * @param player Id of the player ending the turn
+     * @param events Receives the events of the move
+     */
+    public static void endTurn(CommonState state, int player, List<CommonEvent> events) {
+        if (state.getCurrentTurn() == player) {
+            passTurn(state, events);
+        }
+    }
+
+    /**
+     * Passes the turn to the next player in seat order who still has territories
+     * That player receives their reinforcements. Nothing happens if no other player is left.
+     *
+     * @param state Game state to change
+     * @param events Receives the events of the move
+     */
+    public static void passTurn(CommonState state, List<CommonEvent> events) {
+        int count = state.getPlayerCount();
+        int current = state.getCurrentTurn();
+        for (int step = 1; step < count; step++) {
+            int id = (current + step) % count;
+            if (state.getTerritoryCount(id) > 0) {
+                int reinforcements = state.calculateReinforcements(id);
+                state.setCurrentTurn(id);
+                state.setReserve(id, state.getReserve(id) + reinforcements);
+                events.add(new CommonEvent.TurnPassed(current, id, reinforcements));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes a player who left from the game
+     * Their territories become neutral, the turn moves on if it was theirs, and the
+     * last player standing wins
+     *
+     * @param state Game state to change
+     * @param player Id of the leaving player
+     * @param events Receives the events of the move
+     */
+    public static void leave(CommonState state, int player, List<CommonEvent> events) {
+        for (int t = 0; t < state.getTopology().getTerritoryCount(); t++) {
+            if (state.getOwnerId(t) == player) {
+                state.setOwner(t, -1);
+            }
+        }
+        if (state.getCurrentTurn() == player) {
+            passTurn(state, events);
+        }
+        checkWinner(state, events);
+    }
+
+    /**
+     * Declares the winner if only one player still holds territories
+     *
+     * @param state Game state
+     * @param events Receives the events of the move
+     */
+    private static void checkWinner(CommonState state, List<CommonEvent> events) {
+        int standing = -1;
+        for (int id = 0; id < state.getPlayerCount(); id++) {
+            if (state.getTerritoryCount(id) > 0) {
+                if (standing >= 0) {
+                    return;
+                }
+                standing = id;
+            }
+        }
+        if (standing >= 0) {
+            events.add(new CommonEvent.GameWon(standing));
+        }
+    }
+}
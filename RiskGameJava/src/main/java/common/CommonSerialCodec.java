@@ -0,0 +1,54 @@
+/**
+ * CommonSerialCodec.java
+ * This class encodes messages with standard Java object serialization.
+ * It is the original wire format and is kept as a fallback for debugging.
+ */
+
+package common;
+
+import java.io.*;
+
+public class CommonSerialCodec implements CommonCodec {
+    /** Shared stateless instance */
+    public static final CommonSerialCodec INSTANCE = new CommonSerialCodec(null);
+    /** Shared instance for server-side connections, which only deserializes messages */
+    private static final CommonSerialCodec SERVER = new CommonSerialCodec(ObjectInputFilter.Config.createFilter(
+            "common.CommonMessages;common.CommonMessages$Type;java.lang.Enum;maxdepth=4;!*"));
+
+    private final ObjectInputFilter filter;     // Classes allowed when decoding, or null for all
+
+    /**
+     * Constructor for CommonSerialCodec
+     *
+     * @param filter Classes allowed when decoding, or null to allow all
+     */
+    private CommonSerialCodec(ObjectInputFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public byte[] encode(Object message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] data, int offset, int length) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data, offset, length))) {
+            if (filter != null) {
+                in.setObjectInputFilter(filter);
+            }
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown message class: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public CommonCodec forServer() {
+        return SERVER;
+    }
+}
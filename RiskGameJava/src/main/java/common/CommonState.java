@@ -2,77 +2,247 @@
  * CommonState.java
  * This class represents the core game state of the Risk game.
  * It manages territories, players, turn order, and calculates reinforcements.
+ * The state is stored as flat arrays indexed by territory index and player id:
+ * owner and army count per territory, and name, color, reserve, turn flag and a
+ * bitset of owned territories per player. CommonTerritory and CommonPlayer are
+ * lightweight views onto these arrays, and the name-keyed maps serve the UI.
+ * A 64-bit Zobrist hash of the owners, armies, reserves and current turn is kept
+ * up to date by every setter, so equal states can be recognised, and client and
+ * server can compare their copies, without looking at the whole state.
  * The class is serializable to allow transmission between client and server.
  */
 
 package common;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 public class CommonState implements Serializable {
-    /** Map of all territories in the game, keyed by territory name */
-    private Map<String, CommonTerritory> territories;
-    /** Map of all players in the game, keyed by player name */
-    private Map<String, CommonPlayer> players;
-    /** Name of the player whose turn it currently is */
-    private String currentTurnPlayer;
+    /** Static map topology shared by all territories */
+    private final CommonTopology topology;
+    /** Number of longs in one player's territory bitset */
+    private final int words;
+    /** Owner id of every territory, or -1 if unowned */
+    private final int[] owner;
+    /** Army count of every territory */
+    private final int[] armies;
+    /** Number of players */
+    private int playerCount;
+    /** Player names, indexed by id */
+    private String[] playerNames = new String[0];
+    /** Player colors, indexed by id */
+    private String[] playerColors = new String[0];
+    /** Armies available for placement, indexed by id */
+    private int[] reserves = new int[0];
+    /** Turn flag of every player, indexed by id */
+    private boolean[] turns = new boolean[0];
+    /** Owned territories of every player, words consecutive longs per player */
+    private long[] owned = new long[0];
+    /** Owned territories of every player per continent, one int per continent per player */
+    private int[] continentOwned = new int[0];
+    /** Id of the player whose turn it currently is, or -1 */
+    private int currentTurn = -1;
+    /** Zobrist hash of owners, armies, reserves and current turn */
+    private long hash;
     /** Serial version UID for serialization compatibility */
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 4L;
 
-    /** Map of continent bonuses for controlling entire continents */
-    private final static Map<String, Integer> CONTINENT_BONUSES = Map.of(
-            "Asia", 7,
-            "North America", 5,
-            "Europe", 5,
-            "Africa", 3,
-            "South America", 2,
-            "Oceania", 2);
+    /** Hash key kind of a territory owner */
+    private static final int KEY_OWNER = 1;
+    /** Hash key kind of a territory army count */
+    private static final int KEY_ARMIES = 2;
+    /** Hash key kind of a player reserve */
+    private static final int KEY_RESERVE = 3;
+    /** Hash key kind of the current turn */
+    private static final int KEY_TURN = 4;
+
+    /** Territory views keyed by name, created on first use */
+    private transient Map<String, CommonTerritory> territoryViews;
+    /** Player views keyed by name, created on first use */
+    private transient Map<String, CommonPlayer> playerViews;
 
     /**
      * Constructor for CommonState
-     * Initializes empty maps for territories and players
+     * Every territory of the topology starts unowned and empty, and there are no players
+     * 
+     * @param topology Static map topology of the game
+     */
+    public CommonState(CommonTopology topology) {
+        this.topology = topology;
+        this.words = (topology.getTerritoryCount() + 63) >>> 6;
+        this.owner = new int[topology.getTerritoryCount()];
+        this.armies = new int[topology.getTerritoryCount()];
+        Arrays.fill(owner, -1);
+        for (int t = 0; t < owner.length; t++) {
+            hash ^= key(KEY_OWNER, t, -1) ^ key(KEY_ARMIES, t, 0);
+        }
+        hash ^= key(KEY_TURN, 0, -1);
+    }
+
+    /**
+     * Copy constructor, used by copy()
+     * 
+     * @param other State to copy
      */
-    public CommonState() {
-        territories = new HashMap<>();
-        players = new HashMap<>();
+    private CommonState(CommonState other) {
+        this.topology = other.topology;
+        this.words = other.words;
+        this.owner = other.owner.clone();
+        this.armies = other.armies.clone();
+        this.playerCount = other.playerCount;
+        this.playerNames = other.playerNames.clone();
+        this.playerColors = other.playerColors.clone();
+        this.reserves = other.reserves.clone();
+        this.turns = other.turns.clone();
+        this.owned = other.owned.clone();
+        this.continentOwned = other.continentOwned.clone();
+        this.currentTurn = other.currentTurn;
+        this.hash = other.hash;
     }
 
     /**
-     * Adds a territory to the game state
+     * Creates an independent copy of this state
+     * The copy shares only the immutable topology, so changes to either state
+     * never affect the other
      * 
-     * @param t The territory to add
+     * @return The copy
      */
-    public void addTerritory(CommonTerritory t) {
-        territories.put(t.getName(), t);
+    public CommonState copy() {
+        return new CommonState(this);
+    }
+
+    /**
+     * Gets the Zobrist hash of the state
+     * Equal owners, armies, reserves and current turn always give the same hash,
+     * in every JVM; different states collide with negligible probability
+     * 
+     * @return 64-bit hash of the state
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the static map topology of the game
+     * 
+     * @return The map topology
+     */
+    public CommonTopology getTopology() {
+        return topology;
     }
 
     /**
      * Adds a player to the game state
+     * The player gets the next free id, no territories and the default reserve
      * 
-     * @param p The player to add
+     * @param name Player's name
+     * @param color Player's color
+     * @return View of the new player
      */
-    public void addPlayer(CommonPlayer p) {
-        players.put(p.getName(), p);
+    public CommonPlayer addPlayer(String name, String color) {
+        int id = playerCount++;
+        playerNames = Arrays.copyOf(playerNames, playerCount);
+        playerColors = Arrays.copyOf(playerColors, playerCount);
+        reserves = Arrays.copyOf(reserves, playerCount);
+        turns = Arrays.copyOf(turns, playerCount);
+        owned = Arrays.copyOf(owned, playerCount * words);
+        continentOwned = Arrays.copyOf(continentOwned, playerCount * topology.getContinentCount());
+        playerNames[id] = name;
+        playerColors[id] = color;
+        reserves[id] = CommonPlayer.DEFAULT_ARMIES;
+        hash ^= key(KEY_RESERVE, id, reserves[id]);
+        playerViews = null;
+        return new CommonPlayer(this, id);
+    }
+
+    /**
+     * Gets a territory by index
+     * 
+     * @param territory Territory index
+     * @return View of the territory
+     */
+    public CommonTerritory getTerritory(int territory) {
+        return new CommonTerritory(this, territory);
+    }
+
+    /**
+     * Gets a player by id
+     * 
+     * @param id Player id
+     * @return View of the player
+     */
+    public CommonPlayer getPlayer(int id) {
+        return new CommonPlayer(this, id);
+    }
+
+    /**
+     * Gets a player by name
+     * 
+     * @param name Player name
+     * @return View of the player, or null if there is no such player
+     */
+    public CommonPlayer getPlayer(String name) {
+        int id = indexOfPlayer(name);
+        return id >= 0 ? new CommonPlayer(this, id) : null;
+    }
+
+    /**
+     * Gets the id of a player
+     * 
+     * @param name Player name
+     * @return Player id, or -1 if there is no such player
+     */
+    public int indexOfPlayer(String name) {
+        for (int id = 0; id < playerCount; id++) {
+            if (playerNames[id].equals(name)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the number of players
+     * 
+     * @return Number of players
+     */
+    public int getPlayerCount() {
+        return playerCount;
     }
 
     /**
      * Gets all territories in the game
      * 
-     * @return Map of territories keyed by name
+     * @return Unmodifiable map of territory views keyed by name
      */
     public Map<String, CommonTerritory> getTerritories() {
-        return territories;
+        if (territoryViews == null) {
+            Map<String, CommonTerritory> views = new HashMap<>();
+            for (int t = 0; t < owner.length; t++) {
+                views.put(topology.getTerritoryName(t), new CommonTerritory(this, t));
+            }
+            territoryViews = Collections.unmodifiableMap(views);
+        }
+        return territoryViews;
     }
 
     /**
      * Gets all players in the game
      * 
-     * @return Map of players keyed by name
+     * @return Unmodifiable map of player views keyed by name
      */
     public Map<String, CommonPlayer> getPlayers() {
-        return players;
+        if (playerViews == null) {
+            Map<String, CommonPlayer> views = new HashMap<>();
+            for (int id = 0; id < playerCount; id++) {
+                views.put(playerNames[id], new CommonPlayer(this, id));
+            }
+            playerViews = Collections.unmodifiableMap(views);
+        }
+        return playerViews;
     }
 
     /**
@@ -81,7 +251,7 @@ public class CommonState implements Serializable {
      * @return Name of current turn player
      */
     public String getCurrentTurnPlayer() {
-        return currentTurnPlayer;
+        return currentTurn >= 0 ? playerNames[currentTurn] : null;
     }
 
     /**
@@ -90,7 +260,177 @@ public class CommonState implements Serializable {
      * @param currentTurnPlayer Name of the player whose turn it is
      */
     public void setCurrentTurnPlayer(String currentTurnPlayer) {
-        this.currentTurnPlayer = currentTurnPlayer;
+        setCurrentTurn(indexOfPlayer(currentTurnPlayer));
+    }
+
+    /**
+     * Gets the id of the player whose turn it is
+     * 
+     * @return Player id, or -1 if no turn was assigned
+     */
+    public int getCurrentTurn() {
+        return currentTurn;
+    }
+
+    /**
+     * Sets the player whose turn it is
+     * 
+     * @param id Player id, or -1 for none
+     */
+    public void setCurrentTurn(int id) {
+        hash ^= key(KEY_TURN, 0, currentTurn) ^ key(KEY_TURN, 0, id);
+        this.currentTurn = id;
+    }
+
+    /**
+     * Gets the owner of a territory
+     * 
+     * @param territory Territory index
+     * @return Owner id, or -1 if unowned
+     */
+    public int getOwnerId(int territory) {
+        return owner[territory];
+    }
+
+    /**
+     * Gets the number of armies in a territory
+     * 
+     * @param territory Territory index
+     * @return Number of armies
+     */
+    public int getArmies(int territory) {
+        return armies[territory];
+    }
+
+    /**
+     * Sets the number of armies in a territory
+     * 
+     * @param territory Territory index
+     * @param count New number of armies
+     */
+    public void setArmies(int territory, int count) {
+        hash ^= key(KEY_ARMIES, territory, armies[territory]) ^ key(KEY_ARMIES, territory, count);
+        armies[territory] = count;
+    }
+
+    /**
+     * Changes the owner of a territory and moves it between the players' bitsets
+     * and continent counters
+     * 
+     * @param territory Territory index
+     * @param id Id of the new owner, or -1 for none
+     */
+    public void setOwner(int territory, int id) {
+        int previous = owner[territory];
+        long bit = 1L << territory;
+        int continents = topology.getContinentCount();
+        int continent = topology.getContinent(territory);
+        if (previous >= 0) {
+            owned[previous * words + (territory >>> 6)] &= ~bit;
+            continentOwned[previous * continents + continent]--;
+        }
+        owner[territory] = id;
+        hash ^= key(KEY_OWNER, territory, previous) ^ key(KEY_OWNER, territory, id);
+        if (id >= 0) {
+            owned[id * words + (territory >>> 6)] |= bit;
+            continentOwned[id * continents + continent]++;
+        }
+    }
+
+    /**
+     * Changes the owner of a territory
+     * 
+     * @param territory Territory index
+     * @param player The new owner, or null for none
+     */
+    public void setOwner(int territory, CommonPlayer player) {
+        setOwner(territory, player != null ? player.getId() : -1);
+    }
+
+    /**
+     * Checks whether a player owns a territory
+     * 
+     * @param id Player id
+     * @param territory Territory index
+     * @return true if the player owns the territory
+     */
+    public boolean ownsTerritory(int id, int territory) {
+        return (owned[id * words + (territory >>> 6)] & (1L << territory)) != 0;
+    }
+
+    /**
+     * Gets the number of territories owned by a player
+     * 
+     * @param id Player id
+     * @return Number of owned territories
+     */
+    public int getTerritoryCount(int id) {
+        int count = 0;
+        for (int w = id * words; w < (id + 1) * words; w++) {
+            count += Long.bitCount(owned[w]);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the name of a player
+     * 
+     * @param id Player id
+     * @return Player name
+     */
+    public String getPlayerName(int id) {
+        return playerNames[id];
+    }
+
+    /**
+     * Gets the color of a player
+     * 
+     * @param id Player id
+     * @return Player color
+     */
+    public String getPlayerColor(int id) {
+        return playerColors[id];
+    }
+
+    /**
+     * Gets the number of armies a player has available for placement
+     * 
+     * @param id Player id
+     * @return Number of available armies
+     */
+    public int getReserve(int id) {
+        return reserves[id];
+    }
+
+    /**
+     * Sets the number of armies a player has available for placement
+     * 
+     * @param id Player id
+     * @param count New number of available armies
+     */
+    public void setReserve(int id, int count) {
+        hash ^= key(KEY_RESERVE, id, reserves[id]) ^ key(KEY_RESERVE, id, count);
+        reserves[id] = count;
+    }
+
+    /**
+     * Checks the turn flag of a player
+     * 
+     * @param id Player id
+     * @return true if it is this player's turn
+     */
+    public boolean isTurn(int id) {
+        return turns[id];
+    }
+
+    /**
+     * Sets the turn flag of a player
+     * 
+     * @param id Player id
+     * @param turn New turn flag
+     */
+    public void setTurn(int id, boolean turn) {
+        turns[id] = turn;
     }
 
     /**
@@ -101,29 +441,71 @@ public class CommonState implements Serializable {
      * @return Number of reinforcement armies
      */
     public int calculateReinforcements(String playerName) {
-        CommonPlayer player = players.get(playerName);
-        int base = Math.max(3, player.getTerritories().size() / 3);
-        int bonus = calculateContinentBonus(playerName);
+        return calculateReinforcements(indexOfPlayer(playerName));
+    }
+
+    /**
+     * Calculates the number of reinforcement armies a player receives at the start of their turn
+     * 
+     * @param id Id of the player to calculate reinforcements for
+     * @return Number of reinforcement armies
+     */
+    public int calculateReinforcements(int id) {
+        int base = Math.max(3, getTerritoryCount(id) / 3);
+        int bonus = calculateContinentBonus(id);
         return base + bonus;
     }
 
     /**
      * Calculates the continent control bonus for a player
-     * A player receives bonus armies for controlling all territories in a continent
+     * A player receives bonus armies for controlling all territories in a continent,
+     * which is read from the per-continent counters maintained by setOwner
      * 
-     * @param playerName Name of the player to calculate bonus for
+     * @param playerId Id of the player to calculate bonus for
      * @return Total continent control bonus
      */
-    private int calculateContinentBonus(String playerName) {
+    private int calculateContinentBonus(int playerId) {
+        int continents = topology.getContinentCount();
         int totalBonus = 0;
-        for (String continent : CONTINENT_BONUSES.keySet()) {
-            boolean ownsAll = territories.values().stream()
-                    .filter(t -> t.getContinent().equals(continent))
-                    .allMatch(t -> playerName.equals(t.getOwner()));
-            if (ownsAll) {
-                totalBonus += CONTINENT_BONUSES.get(continent);
+        for (int continent = 0; continent < continents; continent++) {
+            if (continentOwned[playerId * continents + continent] == topology.getContinentSize(continent)) {
+                totalBonus += topology.getContinentBonus(continent);
             }
         }
         return totalBonus;
     }
+
+    /**
+     * Computes the Zobrist hash from scratch
+     * Always equal to getHash(); used to check the incremental updates
+     * 
+     * @return 64-bit hash of the state
+     */
+    long computeHash() {
+        long full = key(KEY_TURN, 0, currentTurn);
+        for (int t = 0; t < owner.length; t++) {
+            full ^= key(KEY_OWNER, t, owner[t]) ^ key(KEY_ARMIES, t, armies[t]);
+        }
+        for (int id = 0; id < playerCount; id++) {
+            full ^= key(KEY_RESERVE, id, reserves[id]);
+        }
+        return full;
+    }
+
+    /**
+     * Gets the Zobrist key of one value of the state
+     * Keys are derived from their position with the SplitMix64 finalizer instead of
+     * a random table, so they are the same everywhere and cover any army count.
+     * 
+     * @param kind Kind of value, one of the KEY_ constants
+     * @param index Territory index or player id
+     * @param value The value
+     * @return 64-bit key
+     */
+    private static long key(int kind, int index, int value) {
+        long z = ((long) kind << 56) + ((long) index << 32) + (value & 0xffffffffL) + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
 }
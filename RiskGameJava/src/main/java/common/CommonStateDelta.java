@@ -0,0 +1,162 @@
+/**
+ * CommonStateDelta.java
+ * This class represents the changes made to a game state by one or more moves.
+ * The server sends deltas between full CommonState keyframes, and the client
+ * applies them in place to the last state it received. Every delta carries the
+ * hash of the server's state after the change, so the client can check that its
+ * copy still matches.
+ * The class is serializable to allow transmission between client and server.
+ */
+
+package common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CommonStateDelta implements Serializable {
+    /** Serial version UID for serialization compatibility */
+    private static final long serialVersionUID = 2L;
+
+    /**
+     * New owner and army count of a changed territory
+     *
+     * @param territory Territory index in the state's topology
+     * @param owner Id of the owning player, or -1 if unowned
+     * @param armies Number of armies in the territory
+     */
+    public record TerritoryChange(int territory, int owner, int armies) implements Serializable {
+    }
+
+    /**
+     * New reserve and turn flag of a changed player
+     *
+     * @param name Player name
+     * @param availableArmies Number of armies available for placement
+     * @param turn Whether it is this player's turn
+     */
+    public record PlayerChange(String name, int availableArmies, boolean turn) implements Serializable {
+    }
+
+    /** Name of the player whose turn it is after the change */
+    private final String currentTurnPlayer;
+    /** Hash of the state after the change, as returned by CommonState.getHash() */
+    private final long stateHash;
+    /** Territories whose owner or army count changed */
+    private final List<TerritoryChange> territories = new ArrayList<>();
+    /** Players whose reserve or turn flag changed */
+    private final List<PlayerChange> players = new ArrayList<>();
+
+    /**
+     * Constructor for CommonStateDelta
+     *
+     * @param currentTurnPlayer Name of the player whose turn it is after the change
+     * @param stateHash Hash of the state after the change
+     */
+    public CommonStateDelta(String currentTurnPlayer, long stateHash) {
+        this.currentTurnPlayer = currentTurnPlayer;
+        this.stateHash = stateHash;
+    }
+
+    /**
+     * Records a changed territory
+     *
+     * @param change New values of the territory
+     */
+    public void addTerritory(TerritoryChange change) {
+        territories.add(change);
+    }
+
+    /**
+     * Records a changed player
+     *
+     * @param change New values of the player
+     */
+    public void addPlayer(PlayerChange change) {
+        players.add(change);
+    }
+
+    /**
+     * Gets the name of the player whose turn it is after the change
+     *
+     * @return Name of current turn player
+     */
+    public String getCurrentTurnPlayer() {
+        return currentTurnPlayer;
+    }
+
+    /**
+     * Gets the hash the state has after the change
+     *
+     * @return Hash of the sender's state
+     */
+    public long getStateHash() {
+        return stateHash;
+    }
+
+    /**
+     * Gets the changed territories
+     *
+     * @return List of territory changes
+     */
+    public List<TerritoryChange> getTerritories() {
+        return territories;
+    }
+
+    /**
+     * Gets the changed players
+     *
+     * @return List of player changes
+     */
+    public List<PlayerChange> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Applies the changes to a game state in place
+     * Territory ownership changes are mirrored in the players' territory sets. A delta
+     * referring to territories or players the state does not have is not applied.
+     *
+     * @param state The state to update
+     * @return true if the updated state has the sender's hash, false if the copies diverged
+     */
+    public boolean applyTo(CommonState state) {
+        if (!fits(state)) {
+            return false;
+        }
+        for (TerritoryChange change : territories) {
+            if (state.getOwnerId(change.territory()) != change.owner()) {
+                state.setOwner(change.territory(), change.owner());
+            }
+            state.setArmies(change.territory(), change.armies());
+        }
+        for (PlayerChange change : players) {
+            CommonPlayer p = state.getPlayer(change.name());
+            p.setAvailableArmies(change.availableArmies());
+            p.setTurn(change.turn());
+        }
+        state.setCurrentTurnPlayer(currentTurnPlayer);
+        return state.getHash() == stateHash;
+    }
+
+    /**
+     * Checks that every change refers to a territory and player of a state
+     *
+     * @param state The state the delta would be applied to
+     * @return true if the delta can be applied
+     */
+    private boolean fits(CommonState state) {
+        for (TerritoryChange change : territories) {
+            if (change.territory() < 0 || change.territory() >= state.getTopology().getTerritoryCount()
+                    || change.owner() < -1 || change.owner() >= state.getPlayerCount()) {
+                return false;
+            }
+        }
+        for (PlayerChange change : players) {
+            if (state.getPlayer(change.name()) == null) {
+                return false;
+            }
+        }
+        return currentTurnPlayer == null || state.indexOfPlayer(currentTurnPlayer) >= 0;
+    }
+}
@@ -1,51 +1,40 @@
 /**
  * CommonTerritory.java
  * This class represents a territory in the Risk game.
- * Each territory has a name, continent, owner, number of armies,
- * and a list of adjacent territories for movement and attacks.
- * The class is serializable to allow transmission between client and server.
+ * Each territory has an owner and a number of armies; its name, continent
+ * and adjacent territories are read from the shared map topology.
+ * A territory is a lightweight view onto its index in a CommonState, which
+ * stores the owner and army count.
  */
 
 package common;
 
-import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.List;
 
-public class CommonTerritory implements Serializable {
-    /** Name of the territory */
-    private String name;
-    /** Continent this territory belongs to */
-    private String continent;
-    /** Name of the player who owns this territory */
-    private String owner;
-    /** Number of armies stationed in this territory */
-    private int armies;
-    /** List of names of territories that are adjacent to this one */
-    private List<String> adjacentTerritories;
-    /** Serial version UID for serialization compatibility */
-    private static final long serialVersionUID = 1L;
+public class CommonTerritory {
+    /** Game state holding the territory's values */
+    private final CommonState state;
+    /** Index of this territory in the topology */
+    private final int index;
 
     /**
-     * Constructor for CommonTerritory
+     * Constructor for CommonTerritory, used by CommonState
      * 
-     * @param name Name of the territory
-     * @param continent Continent this territory belongs to
+     * @param state Game state holding the territory's values
+     * @param index Index of the territory in the topology
      */
-    public CommonTerritory(String name, String continent) {
-        this.name = name;
-        this.continent = continent;
-        this.armies = 0;
-        this.adjacentTerritories = new ArrayList<>();
+    CommonTerritory(CommonState state, int index) {
+        this.state = state;
+        this.index = index;
     }
 
     /**
-     * Adds an adjacent territory to this territory's list of neighbors
+     * Gets the index of this territory in the map topology
      * 
-     * @param neighbor Name of the adjacent territory
+     * @return Territory index
      */
-    public void addAdjacent(String neighbor) {
-        adjacentTerritories.add(neighbor);
+    public int getIndex() {
+        return index;
     }
 
     /**
@@ -54,7 +43,7 @@ public class CommonTerritory implements Serializable {
      * @return Territory name
      */
     public String getName() {
-        return name;
+        return state.getTopology().getTerritoryName(index);
     }
 
     /**
@@ -63,25 +52,27 @@ public class CommonTerritory implements Serializable {
      * @return Continent name
      */
     public String getContinent() {
-        return continent;
+        CommonTopology topology = state.getTopology();
+        return topology.getContinentName(topology.getContinent(index));
     }
 
     /**
      * Gets the name of the player who owns this territory
      * 
-     * @return Owner's name
+     * @return Owner's name, or null if unowned
      */
     public String getOwner() {
-        return owner;
+        int owner = state.getOwnerId(index);
+        return owner >= 0 ? state.getPlayerName(owner) : null;
     }
 
     /**
-     * Sets the owner of this territory
+     * Gets the id of the player who owns this territory
      * 
-     * @param owner Name of the new owner
+     * @return Owner's id, or -1 if unowned
      */
-    public void setOwner(String owner) {
-        this.owner = owner;
+    public int getOwnerId() {
+        return state.getOwnerId(index);
     }
 
     /**
@@ -90,7 +81,7 @@ public class CommonTerritory implements Serializable {
      * @return Number of armies
      */
     public int getArmies() {
-        return armies;
+        return state.getArmies(index);
     }
 
     /**
@@ -99,7 +90,7 @@ public class CommonTerritory implements Serializable {
      * @param armies New number of armies
      */
     public void setArmies(int armies) {
-        this.armies = armies;
+        state.setArmies(index, armies);
     }
 
     /**
@@ -108,7 +99,7 @@ public class CommonTerritory implements Serializable {
      * @param count Number of armies to add
      */
     public void addArmies(int count) {
-        this.armies += count;
+        state.setArmies(index, state.getArmies(index) + count);
     }
 
     /**
@@ -117,15 +108,15 @@ public class CommonTerritory implements Serializable {
      * @param count Number of armies to remove
      */
     public void removeArmies(int count) {
-        this.armies -= count;
+        state.setArmies(index, state.getArmies(index) - count);
     }
 
     /**
      * Gets the list of adjacent territories
      * 
-     * @return List of names of adjacent territories
+     * @return Unmodifiable list of names of adjacent territories
      */
     public List<String> getAdjacentTerritories() {
-        return adjacentTerritories;
+        return state.getTopology().getNeighbourNames(index);
     }
 }
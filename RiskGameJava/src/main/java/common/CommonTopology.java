@@ -0,0 +1,371 @@
+/**
+ * CommonTopology.java
+ * This class holds the static part of a Risk map: territory names, continents,
+ * continent bonuses and adjacency. It never changes during a game, so it is sent
+ * to a client once and afterwards referred to by its 64-bit content hash.
+ * Territories and continents are identified by their index in this topology.
+ * The class is serializable to allow transmission between client and server.
+ */
+
+package common;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class CommonTopology implements Serializable {
+    /** Serial version UID for serialization compatibility */
+    private static final long serialVersionUID = 1L;
+    /** Topologies known to this process, keyed by content hash */
+    private static final Map<Long, CommonTopology> REGISTRY = new ConcurrentHashMap<>();
+
+    /** Territory names, indexed by territory */
+    private final String[] territoryNames;
+    /** Continent index of every territory */
+    private final int[] territoryContinents;
+    /** Continent names, indexed by continent */
+    private final String[] continentNames;
+    /** Bonus armies for controlling a whole continent, indexed by continent */
+    private final int[] continentBonuses;
+    /** Adjacent territory indices of every territory, in definition order */
+    private final int[][] adjacency;
+    /** Content hash identifying this topology on the wire */
+    private final long hash;
+
+    /** Index of every territory name */
+    private transient Map<String, Integer> territoryIndex;
+    /** Adjacent territory names of every territory, in definition order */
+    private transient List<List<String>> neighbourNames;
+    /** Adjacency of every territory as a bitset over territory indices */
+    private transient long[][] adjacencyBits;
+    /** Number of territories in every continent */
+    private transient int[] continentSizes;
+
+    /**
+     * Constructor for CommonTopology, used by the builder and the codecs
+     *
+     * @param territoryNames Territory names, indexed by territory
+     * @param territoryContinents Continent index of every territory
+     * @param continentNames Continent names, indexed by continent
+     * @param continentBonuses Continent bonuses, indexed by continent
+     * @param adjacency Adjacent territory indices of every territory
+     */
+    public CommonTopology(String[] territoryNames, int[] territoryContinents, String[] continentNames,
+            int[] continentBonuses, int[][] adjacency) {
+        this.territoryNames = territoryNames.clone();
+        this.territoryContinents = territoryContinents.clone();
+        this.continentNames = continentNames.clone();
+        this.continentBonuses = continentBonuses.clone();
+        this.adjacency = new int[adjacency.length][];
+        for (int i = 0; i < adjacency.length; i++) {
+            this.adjacency[i] = adjacency[i].clone();
+        }
+        this.hash = computeHash();
+        buildIndexes();
+    }
+
+    /**
+     * Builds the name lookups, adjacency bitsets and continent sizes that are not serialized
+     */
+    private void buildIndexes() {
+        territoryIndex = new HashMap<>();
+        for (int i = 0; i < territoryNames.length; i++) {
+            territoryIndex.put(territoryNames[i], i);
+        }
+        List<List<String>> names = new ArrayList<>(territoryNames.length);
+        for (int[] neighbours : adjacency) {
+            String[] list = new String[neighbours.length];
+            for (int j = 0; j < neighbours.length; j++) {
+                list[j] = territoryNames[neighbours[j]];
+            }
+            names.add(List.of(list));
+        }
+        neighbourNames = names;
+        int words = (territoryNames.length + 63) >>> 6;
+        adjacencyBits = new long[territoryNames.length][words];
+        for (int i = 0; i < adjacency.length; i++) {
+            for (int neighbour : adjacency[i]) {
+                adjacencyBits[i][neighbour >>> 6] |= 1L << neighbour;
+            }
+        }
+        continentSizes = new int[continentNames.length];
+        for (int continent : territoryContinents) {
+            continentSizes[continent]++;
+        }
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash over the whole content of the topology
+     *
+     * @return The content hash
+     */
+    private long computeHash() {
+        long h = 0xcbf29ce484222325L;
+        for (String name : continentNames) {
+            h = mix(h, name);
+        }
+        for (int bonus : continentBonuses) {
+            h = mix(h, bonus);
+        }
+        for (int i = 0; i < territoryNames.length; i++) {
+            h = mix(h, territoryNames[i]);
+            h = mix(h, territoryContinents[i]);
+            h = mix(h, adjacency[i].length);
+            for (int neighbour : adjacency[i]) {
+                h = mix(h, neighbour);
+            }
+        }
+        return h;
+    }
+
+    private static long mix(long h, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            h ^= (value >>> shift) & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long mix(long h, String value) {
+        h = mix(h, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            h = mix(h, value.charAt(i));
+        }
+        return h;
+    }
+
+    /**
+     * Replaces a deserialized topology by the registered instance with the same hash
+     */
+    private Object readResolve() throws ObjectStreamException {
+        CommonTopology known = REGISTRY.get(hash);
+        if (known != null) {
+            return known;
+        }
+        buildIndexes();
+        return this;
+    }
+
+    /**
+     * Registers a topology so that states referring to its hash can be decoded
+     *
+     * @param topology The topology to register
+     * @return The registered instance with that hash
+     */
+    public static CommonTopology register(CommonTopology topology) {
+        CommonTopology known = REGISTRY.putIfAbsent(topology.hash, topology);
+        return known != null ? known : topology;
+    }
+
+    /**
+     * Looks up a registered topology by its content hash
+     *
+     * @param hash The content hash
+     * @return The topology, or null if it is unknown
+     */
+    public static CommonTopology forHash(long hash) {
+        return REGISTRY.get(hash);
+    }
+
+    /**
+     * Gets the content hash of this topology
+     *
+     * @return The content hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the number of territories
+     *
+     * @return Number of territories
+     */
+    public int getTerritoryCount() {
+        return territoryNames.length;
+    }
+
+    /**
+     * Gets the name of a territory
+     *
+     * @param territory Territory index
+     * @return Territory name
+     */
+    public String getTerritoryName(int territory) {
+        return territoryNames[territory];
+    }
+
+    /**
+     * Gets the index of a territory
+     *
+     * @param name Territory name
+     * @return Territory index, or -1 if the name is unknown
+     */
+    public int indexOf(String name) {
+        Integer index = name != null ? territoryIndex.get(name) : null;
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Gets the continent index of a territory
+     *
+     * @param territory Territory index
+     * @return Continent index
+     */
+    public int getContinent(int territory) {
+        return territoryContinents[territory];
+    }
+
+    /**
+     * Gets the number of continents
+     *
+     * @return Number of continents
+     */
+    public int getContinentCount() {
+        return continentNames.length;
+    }
+
+    /**
+     * Gets the name of a continent
+     *
+     * @param continent Continent index
+     * @return Continent name
+     */
+    public String getContinentName(int continent) {
+        return continentNames[continent];
+    }
+
+    /**
+     * Gets the number of territories in a continent
+     *
+     * @param continent Continent index
+     * @return Number of territories
+     */
+    public int getContinentSize(int continent) {
+        return continentSizes[continent];
+    }
+
+    /**
+     * Gets the bonus for controlling a whole continent
+     *
+     * @param continent Continent index
+     * @return Number of bonus armies
+     */
+    public int getContinentBonus(int continent) {
+        return continentBonuses[continent];
+    }
+
+    /**
+     * Gets the adjacent territories of a territory
+     * The returned array must not be modified
+     *
+     * @param territory Territory index
+     * @return Indices of adjacent territories
+     */
+    public int[] getAdjacent(int territory) {
+        return adjacency[territory];
+    }
+
+    /**
+     * Checks whether one territory borders another
+     *
+     * @param from Territory index
+     * @param to Territory index
+     * @return true if to is adjacent to from
+     */
+    public boolean isAdjacent(int from, int to) {
+        return (adjacencyBits[from][to >>> 6] & (1L << to)) != 0;
+    }
+
+    /**
+     * Gets the names of the adjacent territories of a territory
+     *
+     * @param territory Territory index
+     * @return Unmodifiable list of adjacent territory names
+     */
+    public List<String> getNeighbourNames(int territory) {
+        return neighbourNames.get(territory);
+    }
+
+    /**
+     * Gets the names of the adjacent territories of a territory
+     *
+     * @param name Territory name
+     * @return Unmodifiable list of adjacent territory names, empty for unknown names
+     */
+    public List<String> getNeighbourNames(String name) {
+        int territory = indexOf(name);
+        return territory >= 0 ? neighbourNames.get(territory) : List.of();
+    }
+
+    /**
+     * Builder collecting continents and territories in definition order
+     * Neighbours may refer to territories that are defined later
+     */
+    public static final class Builder {
+        private final List<String> continents = new ArrayList<>();
+        private final List<Integer> bonuses = new ArrayList<>();
+        private final List<String> territories = new ArrayList<>();
+        private final List<Integer> territoryContinents = new ArrayList<>();
+        private final List<String[]> neighbours = new ArrayList<>();
+
+        /**
+         * Adds a continent
+         *
+         * @param name Continent name
+         * @param bonus Bonus armies for controlling the whole continent
+         * @return This builder
+         */
+        public Builder addContinent(String name, int bonus) {
+            continents.add(name);
+            bonuses.add(bonus);
+            return this;
+        }
+
+        /**
+         * Adds a territory
+         *
+         * @param name Territory name
+         * @param continent Name of a continent added before
+         * @param neighbourNames Names of adjacent territories
+         * @return This builder
+         */
+        public Builder addTerritory(String name, String continent, String... neighbourNames) {
+            int continentIndex = continents.indexOf(continent);
+            if (continentIndex < 0) {
+                throw new IllegalArgumentException("Unknown continent: " + continent);
+            }
+            territories.add(name);
+            territoryContinents.add(continentIndex);
+            neighbours.add(neighbourNames);
+            return this;
+        }
+
+        /**
+         * Resolves all neighbour names and creates the topology
+         *
+         * @return The immutable topology
+         */
+        public CommonTopology build() {
+            int[][] adjacency = new int[territories.size()][];
+            for (int i = 0; i < adjacency.length; i++) {
+                String[] names = neighbours.get(i);
+                adjacency[i] = new int[names.length];
+                for (int j = 0; j < names.length; j++) {
+                    int index = territories.indexOf(names[j]);
+                    if (index < 0) {
+                        throw new IllegalArgumentException("Unknown neighbour " + names[j] + " of " + territories.get(i));
+                    }
+                    adjacency[i][j] = index;
+                }
+            }
+            return new CommonTopology(
+                    territories.toArray(new String[0]),
+                    territoryContinents.stream().mapToInt(Integer::intValue).toArray(),
+                    continents.toArray(new String[0]),
+                    bonuses.stream().mapToInt(Integer::intValue).toArray(),
+                    adjacency);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * ServerAiPlayer.java
+ * This class is a computer opponent that takes a seat like any other player.
+ * It implements ServerConnection, so matchmaking and ServerHandler treat it as a
+ * connection: it sends JOIN when opened and receives the same frames as a remote
+ * player. It keeps its own copy of the game state from those frames, and on its
+ * turn searches for a move with CommonMcts on the search pool of ServerExecutors,
+ * never on a session or I/O thread. The chosen move comes back through the listener
+ * like a decoded message, so it goes through the usual move processing.
+ */
+
+package server;
+
+import common.CommonMcts;
+import common.CommonMessages;
+import common.CommonState;
+import common.CommonStateDelta;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ServerAiPlayer implements ServerConnection {
+    /** Logger for AI player logging */
+    private static final Logger LOGGER = Logger.getLogger(ServerAiPlayer.class.getName());
+    /** Time the AI may think about one move */
+    public static final long MOVE_MILLIS = Long.getLong("risk.aiMoveMillis", 200L);
+    /** Time after a move without a state update before the AI assumes it was rejected */
+    private static final long STALL_MILLIS = MOVE_MILLIS + 2_000;
+    /** Numbers the names of AI players */
+    private static final AtomicInteger NEXT = new AtomicInteger(1);
+
+    private final String name = "AI-" + NEXT.getAndIncrement();   // Player name sent with JOIN
+    private final SplittableRandom random = new SplittableRandom(ThreadLocalRandom.current().nextLong()); // Seeds of the searches
+    private Listener listener;                  // Receiver of the AI's messages
+    private CommonState state;                  // The AI's copy of the game state
+    private boolean thinking;                   // Whether a search is running
+    private boolean closed;                     // Whether the AI left
+
+    @Override
+    public void open(Listener listener) {
+        boolean first;
+        synchronized (this) {
+            first = this.listener == null;
+            this.listener = listener;
+        }
+        if (first) {
+            listener.onMessage(new CommonMessages(CommonMessages.Type.JOIN, name));
+        }
+    }
+
+    /**
+     * Receives a frame from the session
+     * Game states and deltas update the AI's copy and may start a search; the end of
+     * a game is answered with a rematch request, so a table with remote players can
+     * always play again. Everything else is ignored.
+     *
+     * @param frame The frame
+     */
+    @Override
+    public void send(ServerFrame frame) {
+        Object message = frame.getMessage();
+        if (message instanceof CommonState keyframe) {
+            synchronized (this) {
+                // The keyframe is the session's live state, so keep a copy
+                state = keyframe.copy();
+            }
+            think();
+        } else if (message instanceof CommonStateDelta delta) {
+            boolean diverged;
+            synchronized (this) {
+                diverged = state != null && !delta.applyTo(state);
+                if (diverged) {
+                    // Wait for the full state instead of searching from a wrong one
+                    state = null;
+                }
+            }
+            if (diverged) {
+                LOGGER.warning(name + " lost track of the game state");
+                deliver(new CommonMessages(CommonMessages.Type.RESYNC));
+            }
+            think();
+        } else if (message instanceof CommonMessages notice
+                && (notice.getType() == CommonMessages.Type.WIN || notice.getType() == CommonMessages.Type.LOSE)) {
+            deliver(new CommonMessages(CommonMessages.Type.REMATCH_REQUEST));
+        }
+    }
+
+    /**
+     * Starts a search if it is the AI's turn and no search is running
+     * The search works on a snapshot, so later frames do not disturb it
+     */
+    private void think() {
+        CommonState snapshot;
+        int player;
+        long seed;
+        synchronized (this) {
+            if (closed || thinking || state == null) {
+                return;
+            }
+            player = state.indexOfPlayer(name);
+            if (player < 0 || state.getCurrentTurn() != player) {
+                return;
+            }
+            thinking = true;
+            snapshot = state.copy();
+            seed = random.nextLong();
+        }
+        ServerExecutors.getSearchPool().execute(() -> search(snapshot, player, seed));
+    }
+
+    /**
+     * Searches for a move and plays it
+     * Runs on the search pool
+     *
+     * @param snapshot State to search from
+     * @param player The AI's player id
+     * @param seed Seed of the search
+     */
+    private void search(CommonState snapshot, int player, long seed) {
+        CommonMessages move;
+        try {
+            move = CommonMcts.chooseMove(snapshot, player, ServerExecutors.getSearchPool(),
+                    TimeUnit.MILLISECONDS.toNanos(MOVE_MILLIS), seed);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, name + " failed to choose a move", e);
+            move = new CommonMessages(CommonMessages.Type.END_TURN, null, null, 0);
+        }
+        synchronized (this) {
+            thinking = false;
+        }
+        deliver(move);
+
+        long hash = snapshot.getHash();
+        ServerExecutors.schedule(() -> checkStalled(hash), STALL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ends the AI's turn if its last move did not change the game, which means it was rejected
+     *
+     * @param hash Hash of the state the move was chosen in
+     */
+    private void checkStalled(long hash) {
+        synchronized (this) {
+            if (closed || thinking || state == null || state.getHash() != hash
+                    || state.getCurrentTurn() != state.indexOfPlayer(name)) {
+                return;
+            }
+        }
+        LOGGER.warning(name + " got no answer to its move, ending its turn");
+        deliver(new CommonMessages(CommonMessages.Type.END_TURN, null, null, 0));
+    }
+
+    /**
+     * Hands a message of the AI to the session, as if it came from a connection
+     *
+     * @param message The message
+     */
+    private void deliver(CommonMessages message) {
+        Listener target;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            target = listener;
+        }
+        target.onMessage(message);
+    }
+
+    @Override
+    public boolean isCongested() {
+        return false;
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return !closed;
+    }
+
+    @Override
+    public boolean isAutomated() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        Listener target;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            target = listener;
+        }
+        if (target != null) {
+            target.onDisconnect(name + " left the table");
+        }
+    }
+
+    @Override
+    public void flushAndClose() {
+        close();
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return "ai:" + name;
+    }
+}
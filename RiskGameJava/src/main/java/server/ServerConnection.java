@@ -0,0 +1,98 @@
+/**
+ * ServerConnection.java
+ * This interface represents a single player's network connection on the server side.
+ * It hides whether the connection is served by a blocking socket thread or by the
+ * non-blocking selector transport, so game logic only deals with decoded messages.
+ */
+
+package server;
+
+public interface ServerConnection {
+    /**
+     * Callback interface receiving the decoded traffic of a connection
+     */
+    interface Listener {
+        /**
+         * Called for every object decoded from the connection
+         *
+         * @param message The decoded object
+         */
+        void onMessage(Object message);
+
+        /**
+         * Called once when the connection is closed or fails
+         *
+         * @param reason Description of why the connection ended
+         */
+        void onDisconnect(String reason);
+    }
+
+    /**
+     * Starts delivering incoming messages to the given listener
+     * Calling it again replaces the listener of an already open connection
+     *
+     * @param listener Receiver of the connection's messages
+     */
+    void open(Listener listener);
+
+    /**
+     * Queues an object for the remote player and returns without waiting for the write
+     * A connection whose outbound queue overflows is closed
+     *
+     * @param message The object to send
+     */
+    default void send(Object message) {
+        send(new ServerFrame(message));
+    }
+
+    /**
+     * Queues a frame for the remote player, reusing its encoding if it was already sent elsewhere
+     *
+     * @param frame The frame to send
+     */
+    void send(ServerFrame frame);
+
+    /**
+     * Checks whether the remote player is falling behind on outgoing frames
+     * Senders of state updates use it to switch to a full keyframe, which conflates the backlog
+     *
+     * @return true if many frames are waiting to be written
+     */
+    boolean isCongested();
+
+    /**
+     * Checks whether the connection is still usable
+     *
+     * @return true if the connection has not been closed
+     */
+    boolean isOpen();
+
+    /**
+     * Checks whether the player behind the connection is an AI player of the server
+     *
+     * @return true for AI players, false for remote players
+     */
+    default boolean isAutomated() {
+        return false;
+    }
+
+    /**
+     * Closes the connection
+     * Frames that are still waiting to be written are dropped
+     */
+    void close();
+
+    /**
+     * Closes the connection once every frame queued so far has been written
+     * Used to send a last notice before sending a player away; frames queued after
+     * the call are dropped
+     */
+    void flushAndClose();
+
+    /**
+     * Gets a printable description of the remote address
+     *
+     * @return Remote address of the player
+     */
+    String getRemoteAddress();
+}
@@ -0,0 +1,149 @@
+/**
+ * ServerExecutors.java
+ * This class provides the executors of the server.
+ * Blocking tasks, such as the reader and writer loops of every blocking connection, run on
+ * platform threads or on virtual threads depending on configuration.
+ * Game logic runs in session mailboxes, which share a small fixed pool, and timeouts run
+ * on a single shared scheduler thread. AI players search for moves on a separate, bounded
+ * work-stealing pool, so their thinking never delays network I/O or session tasks.
+ */
+
+package server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+public class ServerExecutors {
+    /** Logger for executor configuration messages */
+    private static final Logger LOGGER = Logger.getLogger(ServerExecutors.class.getName());
+    /** Thread model: "platform" for one OS thread per task, "virtual" for virtual threads */
+    public static final String THREADS = System.getProperty("risk.threads", "platform");
+    /** Executor shared by all blocking server tasks */
+    private static final ExecutorService TASKS;
+    /** Whether TASKS runs on virtual threads */
+    private static final boolean VIRTUAL;
+    /** Number of threads running session mailboxes */
+    public static final int SESSION_THREADS = Integer.getInteger("risk.sessionThreads",
+            Runtime.getRuntime().availableProcessors());
+    /** Fixed pool shared by all session mailboxes */
+    private static final ExecutorService SESSIONS = Executors.newFixedThreadPool(Math.max(1, SESSION_THREADS),
+            new DaemonThreadFactory("session-"));
+    /** Scheduler shared by all server timeouts */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new DaemonThreadFactory("scheduler-"));
+    /** Number of threads searching moves for AI players */
+    public static final int SEARCH_THREADS = Integer.getInteger("risk.aiThreads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    static {
+        ExecutorService virtualExecutor = "virtual".equals(THREADS) ? createVirtualExecutor() : null;
+        VIRTUAL = virtualExecutor != null;
+        TASKS = VIRTUAL ? virtualExecutor : Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Runs a blocking task on the configured thread model
+     *
+     * @param task Task to run
+     */
+    public static void execute(Runnable task) {
+        TASKS.execute(task);
+    }
+
+    /**
+     * Runs a short, non-blocking session task on the shared session pool
+     *
+     * @param task Task to run
+     */
+    public static void executeSessionTask(Runnable task) {
+        SESSIONS.execute(task);
+    }
+
+    /**
+     * Runs a short task after a delay on the shared scheduler
+     * The task should only complete futures or post to a mailbox
+     *
+     * @param task Task to run
+     * @param delay Delay before running the task
+     * @param unit Unit of the delay
+     * @return Handle to cancel the task
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return SCHEDULER.schedule(task, delay, unit);
+    }
+
+    /**
+     * Gets the pool on which AI players search for moves
+     * Created on first use, so servers without AI players never start its threads.
+     *
+     * @return The search pool
+     */
+    public static ForkJoinPool getSearchPool() {
+        return SearchPool.POOL;
+    }
+
+    /**
+     * Checks whether tasks actually run on virtual threads
+     *
+     * @return true if the virtual-thread executor is in use
+     */
+    public static boolean usesVirtualThreads() {
+        return VIRTUAL;
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor
+     * The build targets Java 17, so the factory method is looked up at runtime
+     *
+     * @return The executor, or null if the JVM has no virtual threads
+     */
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warning("Virtual threads need Java 21 or newer, using platform threads instead");
+            return null;
+        }
+    }
+
+    /**
+     * Holds the search pool, so that it is only created when first needed
+     */
+    private static final class SearchPool {
+        private static final AtomicInteger NEXT = new AtomicInteger();
+        private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, SEARCH_THREADS), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("search-" + NEXT.getAndIncrement());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Creates named daemon threads for the shared pools
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger next = new AtomicInteger();
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, prefix + next.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
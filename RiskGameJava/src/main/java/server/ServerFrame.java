@@ -0,0 +1,66 @@
+/**
+ * ServerFrame.java
+ * This class holds one outgoing message together with its encoded frame.
+ * The message is encoded the first time the frame is sent and the bytes are reused
+ * for every further recipient, so a game state broadcast to a whole session is
+ * encoded once. The encoded bytes are never modified after encoding; every send
+ * gets its own duplicate with an independent position.
+ */
+
+package server;
+
+import common.CommonCodec;
+import common.CommonFrames;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public final class ServerFrame {
+    private final Object message;                   // Message carried by the frame
+    private final ServerOutbound.Kind kind;         // How the frame may be treated while it waits
+    private CommonCodec codec;                      // Codec of the cached encoding
+    private ByteBuffer encoded;                     // Cached encoding, never modified
+
+    /**
+     * Constructor for ServerFrame
+     * The message must not change until the frame has been sent to all recipients
+     *
+     * @param message The message to send
+     */
+    public ServerFrame(Object message) {
+        this.message = message;
+        this.kind = ServerOutbound.kindOf(message);
+    }
+
+    /**
+     * Gets the message carried by the frame
+     *
+     * @return The message
+     */
+    public Object getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets how the frame may be treated while it waits in an outbound queue
+     *
+     * @return The frame kind
+     */
+    ServerOutbound.Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the encoded frame, encoding the message on first use
+     *
+     * @param codec Codec of the receiving connection
+     * @return A duplicate of the encoded frame, positioned at its start
+     */
+    synchronized ByteBuffer encode(CommonCodec codec) throws IOException {
+        if (encoded == null || this.codec != codec) {
+            encoded = CommonFrames.toFrame(codec, message);
+            this.codec = codec;
+        }
+        return encoded.duplicate();
+    }
+}
@@ -1,130 +1,195 @@
 /**
  * ServerHandler.java
  * This class handles individual player connections and game logic on the server side.
- * It manages player communication, processes game moves, and enforces game rules.
+ * It manages player communication and runs game moves through the CommonRules engine,
+ * turning the events it reports into messages for the players.
+ * Everything except receiving runs in the session's mailbox, shared with the handlers of
+ * the other players, so the game state and all handlers are only ever touched by one task
+ * at a time.
+ * State updates are computed and encoded once per session and broadcast by ServerSession.
  */
 
 package server;
 
 import common.*;
 
-import java.io.*;
-import java.net.Socket;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
-public class ServerHandler implements Runnable {
+public class ServerHandler implements ServerConnection.Listener {
     /** Logger for server-side logging */
     private static final Logger LOGGER = Logger.getLogger(ServerHandler.class.getName());
 
     // Player connection and game state
-    private final Socket socket;                    // Player's socket connection
-    private ObjectInputStream in;                   // Input stream for receiving messages
-    private ObjectOutputStream out;                 // Output stream for sending messages
+    private final ServerConnection connection;      // Player's network connection
+    private final ServerSession session;            // Session running all game logic in its mailbox
     volatile String playerName;                     // Player's name
-    private ServerHandler opponent;                 // Reference to opponent's handler
-    private CommonState gameState;                  // Current game state
+    private volatile CommonState gameState;         // Current game state
     private boolean rematchRequested = false;       // Rematch request status
-    private boolean gameEnded = false;              // Game end status
+    private boolean gameEnded = false;              // Whether the player won, lost or left
+    private boolean left = false;                   // Whether the player left the session's table
+    private CommonTopology sentTopology;            // Map topology the player already received
+    private final CompletableFuture<String> joined = new CompletableFuture<>();  // Completed by JOIN or disconnect
+    private boolean rejected = false;               // Whether the player's name was refused
+    private ServerConnection.Listener requeuedTo;   // The player's new wait, once sent back to matchmaking
 
     /**
      * Constructor for ServerHandler
      * 
-     * @param socket Player's socket connection
+     * @param connection Player's network connection
      * @param playerName Player's name (can be null initially)
+     * @param session Session the player takes part in, shared with the other players
      */
-    public ServerHandler(Socket socket, String playerName) {
-        this.socket = socket;
+    public ServerHandler(ServerConnection connection, String playerName, ServerSession session) {
+        this.connection = connection;
         this.playerName = playerName;
+        this.session = session;
     }
 
     /**
-     * Sets the opponent handler for this player
+     * Sets the game state for this player
      * 
-     * @param opponent Opponent's ServerHandler instance
+     * @param gameState Current game state
      */
-    public void setOpponent(ServerHandler opponent) {
-        this.opponent = opponent;
+    public void setGameState(CommonState gameState) {
+        this.gameState = gameState;
     }
 
     /**
-     * Sets the game state for this player
+     * Gets the outcome of the player's handshake
+     * It completes with the player's name on JOIN, and exceptionally if the player
+     * disconnects first
      * 
-     * @param gameState Current game state
+     * @return Future of the player's name
      */
-    public void setGameState(CommonState gameState) {
-        this.gameState = gameState;
+    CompletableFuture<String> joined() {
+        return joined;
     }
 
     /**
-     * Main run method for the player handler thread
-     * Manages the player's game session lifecycle
+     * Starts receiving messages from the player's connection
      */
-    @Override
-    public void run() {
-        try {
-            initializeStreams();
-            waitForPlayerName();
-            waitForGameState();
-            sendInitialGameState();
-            handleGameLoop();
-        } catch (IOException | ClassNotFoundException | InterruptedException e) {
-            String errorMessage = e.getMessage();
-            if (errorMessage == null) {
-                errorMessage = "Player left the game";
-            }
-            LOGGER.log(Level.SEVERE, "Player " + (playerName != null ? playerName : "unknown") + " disconnected: " + errorMessage);
-            handleDisconnection();
-        }
+    public void start() {
+        connection.open(this);
     }
 
     /**
-     * Initializes input and output streams for player communication
+     * Closes the player's connection, for example when the session could not start
+     * Messages already sent to the player are delivered first
      */
-    private void initializeStreams() throws IOException {
-        out = new ObjectOutputStream(socket.getOutputStream());
-        in = new ObjectInputStream(socket.getInputStream());
+    void closeConnection() {
+        connection.flushAndClose();
     }
 
     /**
-     * Waits for the player to send their name
+     * Sends the player back to matchmaking because the session could not start
+     * A player who already sent their name does not have to send it again. Messages
+     * still on their way to this handler are passed on to the new wait.
+     * Must run in the session mailbox.
      */
-    private void waitForPlayerName() throws IOException, ClassNotFoundException {
-        while (playerName == null) {
-            Object obj = in.readObject();
-            if (obj instanceof CommonMessages move && move.getType() == CommonMessages.Type.JOIN) {
-                this.playerName = move.getMessage();
-                LOGGER.info("Player JOIN received: " + playerName);
-            }
+    void requeue() {
+        LOGGER.info("Returning " + (playerName != null ? playerName : connection.getRemoteAddress()) + " to matchmaking");
+        requeuedTo = ServerManager.getMatchmaker().enqueue(connection, playerName);
+    }
+
+    /**
+     * Checks whether the player can wait for another table after the session failed to start
+     * 
+     * @param timedOut Whether the session gave up waiting for names
+     * @return false if the player left, was refused, or never sent a name before the timeout
+     */
+    boolean canRequeue(boolean timedOut) {
+        return !rejected && !joined.isCompletedExceptionally() && connection.isOpen()
+                && (!timedOut || playerName != null);
+    }
+
+    /**
+     * Posts a message decoded from the player's connection to the session mailbox
+     * 
+     * @param message The decoded message
+     */
+    @Override
+    public void onMessage(Object message) {
+        if (message instanceof CommonMessages move) {
+            session.getMailbox().execute(() -> handleMessage(move));
         }
     }
 
     /**
-     * Waits for the game state to be initialized
+     * Handles a message from the player in the session mailbox
+     * Waits for the JOIN message first, ignores moves until the game state is assigned,
+     * then processes every move. A JOIN without a name or with the name of another
+     * remote player at the table is refused; an AI player gives its name up instead.
+     * 
+     * @param move The message to handle
      */
-    private void waitForGameState() throws InterruptedException {
-        while (gameState == null) {
-            Thread.sleep(50);
+    private void handleMessage(CommonMessages move) {
+        if (requeuedTo != null) {
+            requeuedTo.onMessage(move);
+            return;
+        }
+        if (playerName == null) {
+            if (move.getType() == CommonMessages.Type.JOIN) {
+                String name = move.getMessage();
+                ServerHandler holder = name != null ? session.getParticipant(name) : null;
+                if (name == null || name.isBlank() || (holder != null && !holder.isAutomated())) {
+                    reject(name);
+                    return;
+                }
+                if (holder != null) {
+                    holder.reject(name);
+                }
+                this.playerName = name;
+                LOGGER.info("Player JOIN received: " + playerName);
+                joined.complete(playerName);
+            }
+            return;
         }
+        if (gameState == null) {
+            return;
+        }
+        processMove(move);
     }
 
     /**
-     * Sends the initial game state to the player
+     * Posts the loss of the player's connection to the session mailbox
+     * It runs after every message received before it
+     * 
+     * @param reason Description of why the connection ended
      */
-    private void sendInitialGameState() {
-        LOGGER.info("Sending initial GameState to " + playerName);
-        sendGameState();
+    @Override
+    public void onDisconnect(String reason) {
+        session.getMailbox().execute(() -> {
+            if (requeuedTo != null) {
+                requeuedTo.onDisconnect(reason);
+                return;
+            }
+            LOGGER.log(Level.SEVERE, "Player " + (playerName != null ? playerName : "unknown") + " disconnected: " + reason);
+            joined.completeExceptionally(new IOException(reason));
+            handleDisconnection();
+        });
     }
 
     /**
-     * Main game loop that processes player moves
+     * Refuses the player's name and closes their connection
+     * The session cannot start without them, so the other players go back to matchmaking.
+     * Must run in the session mailbox.
+     * 
+     * @param name The refused name
      */
-    private void handleGameLoop() throws IOException, ClassNotFoundException {
-        while (true) {
-            CommonMessages move = (CommonMessages) in.readObject();
-            processMove(move);
-            checkWinner();
-        }
+    private void reject(String name) {
+        LOGGER.warning("Rejected JOIN from " + connection.getRemoteAddress() + " with name " + name);
+        rejected = true;
+        sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON,
+                "The name \"" + name + "\" cannot be used at this table. Please reconnect with another name."));
+        connection.flushAndClose();
+        IOException error = new IOException("Invalid player name: " + name);
+        joined.completeExceptionally(error);
+        session.failHandshake(error);
     }
 
     /**
@@ -133,327 +198,285 @@ public class ServerHandler implements Runnable {
      * @param move The move to process
      */
     private void processMove(CommonMessages move) {
-        LOGGER.info("🎯 Move from " + playerName + ": " + move.getType());
+        LOGGER.info("🎯 Move from " + playerName + ": " + describe(move));
 
         switch (move.getType()) {
-            case JOIN -> handleJoin(move);
-            case PLACE_ARMY -> handlePlaceArmy(move);
-            case ATTACK -> handleAttack(move);
-            case FORTIFY -> handleFortify(move);
+            case JOIN -> LOGGER.warning("Ignored JOIN from " + playerName + " after the handshake");
+            case PLACE_ARMY, ATTACK, BLITZ, FORTIFY, END_TURN -> handleRules(move);
             case REMATCH_REQUEST -> handleRematchRequest();
-            case END_TURN -> handleEndTurn();
             case PLAY_AGAIN -> handlePlayAgain();
             case EXIT_GAME -> handleExitGame();
+            case RESYNC -> handleResync();
             default -> LOGGER.warning("Unknown move type: " + move.getType());
         }
-
-        if (!gameEnded) {
-            sendGameState();
-            opponent.sendGameState();
-        }
     }
 
     /**
-     * Handles player join request
+     * Handles a game move with the rules engine
+     * The engine changes the game state; the handler only turns its events into messages
      * 
-     * @param move Join message containing player name
+     * @param move Placement, attack, blitz, fortify or end of turn
      */
-    private void handleJoin(CommonMessages move) {
-        this.playerName = move.getMessage();
-        LOGGER.info("🔗 Player joined: " + playerName);
+    private void handleRules(CommonMessages move) {
+        List<CommonEvent> events = new ArrayList<>();
+        CommonRules.applyInPlace(gameState, gameState.indexOfPlayer(playerName), move, session.getRandom(), events);
+        publishAndBroadcast(events);
     }
 
     /**
-     * Handles army placement move
-     * Validates and processes placing armies on territories
+     * Tells the players about the events of a move and sends them the resulting state
+     * Eliminations and the win are announced after the state, so every player still
+     * at the table, the winner included, receives the state the game ended in.
      * 
-     * @param move Army placement message
+     * @param events Events reported by the rules engine
      */
-    private void handlePlaceArmy(CommonMessages move) {
-        if (!gameState.getCurrentTurnPlayer().equals(playerName)) {
-            sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "It's not your turn!"));
-            return;
-        }
-
-        CommonPlayer p = gameState.getPlayers().get(playerName);
-        int available = p.getAvailableArmies();
-        int requested = move.getArmyCount();
-        CommonTerritory t1 = gameState.getTerritories().get(move.getTo());
-
-        if (available <= 0) {
-            sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "You have no armies left to place."));
-            return;
-        }
-
-        if (!t1.getOwner().equals(playerName)) {
-            sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "You can only place armies on your own territory!"));
-            return;
-        }
-
-        int toPlace = Math.min(available, requested);
-        t1.addArmies(toPlace);
-        p.setAvailableArmies(available - toPlace);
-
-        sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "🪖 " + playerName + " placed " + toPlace
-                + " armies on " + t1.getName() + ". Remaining: " + p.getAvailableArmies()));
-
-        if (p.getAvailableArmies() == 0) {
-            sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "All armies placed. Now you can Attack, Fortify or End Turn."));
-        }
+    private void publishAndBroadcast(List<CommonEvent> events) {
+        publish(events);
+        session.broadcastGameState(gameState);
+        publishOutcome(events);
     }
 
     /**
-     * Handles attack move
-     * Processes territory attacks including dice rolling and army losses
+     * Tells the players about the events of a move, except eliminations and the win
      * 
-     * @param move Attack message
+     * @param events Events reported by the rules engine
      */
-    private void handleAttack(CommonMessages move) {
-        CommonTerritory from = gameState.getTerritories().get(move.getFrom());
-        CommonTerritory to = gameState.getTerritories().get(move.getTo());
-
-        if (!isValidAttack(from, to)) {
-            sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Invalid attack!"));
-            return;
-        }
-
-        // Calculate number of dice for attacker and defender
-        int maxAttackerDice = Math.min(3, from.getArmies() - 1);
-        int attackerDice = Math.min(move.getArmyCount(), maxAttackerDice);
-        int defenderDice = Math.min(2, to.getArmies());
-
-        // Roll dice and calculate losses
-        int[] attackerRolls = rollDice(attackerDice);
-        int[] defenderRolls = rollDice(defenderDice);
-
-        int attackerLoss = 0;
-        int defenderLoss = 0;
-
-        for (int i = 0; i < Math.min(attackerDice, defenderDice); i++) {
-            if (attackerRolls[i] > defenderRolls[i]) {
-                defenderLoss++;
-            } else {
-                attackerLoss++;
+    private void publish(List<CommonEvent> events) {
+        CommonTopology topology = gameState.getTopology();
+        for (CommonEvent event : events) {
+            if (event instanceof CommonEvent.Rejected e) {
+                send(e.player(), e.reason());
+            } else if (event instanceof CommonEvent.ArmiesPlaced e) {
+                send(e.player(), "🪖 " + gameState.getPlayerName(e.player()) + " placed " + e.count()
+                        + " armies on " + topology.getTerritoryName(e.territory()) + ". Remaining: " + e.remaining());
+                if (e.remaining() == 0) {
+                    send(e.player(), "All armies placed. Now you can Attack, Fortify or End Turn.");
+                }
+            } else if (event instanceof CommonEvent.AttackResolved e) {
+                send(e.player(), "Dice | Attacker: " + arrayToString(e.attackerFaces())
+                        + " | Defender: " + arrayToString(e.defenderFaces()));
+                send(e.player(), "Losses | Attacker: " + e.attackerLoss() + ", Defender: " + e.defenderLoss());
+            } else if (event instanceof CommonEvent.BlitzResolved e) {
+                send(e.player(), "⚡ Blitz on " + topology.getTerritoryName(e.to()) + ": " + e.rounds() + " rounds"
+                        + (e.captured() ? ", territory captured!" : ", attack stopped."));
+                send(e.player(), "Losses | Attacker: " + e.attackerLoss() + ", Defender: " + e.defenderLoss());
+            } else if (event instanceof CommonEvent.Fortified e) {
+                send(e.player(), "Moved " + e.count() + " armies from " + topology.getTerritoryName(e.from())
+                        + " to " + topology.getTerritoryName(e.to()));
+                session.broadcastMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON,
+                        gameState.getPlayerName(e.player()) + " fortified positions."), handlerOf(e.player()));
+            } else if (event instanceof CommonEvent.TurnPassed e) {
+                String next = gameState.getPlayerName(e.to());
+                LOGGER.info("Turn passed to: " + next);
+                send(e.to(), "You received " + e.reinforcements() + " reinforcement armies!");
+                session.broadcastMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Turn passed to " + next + "."), handlerOf(e.to()));
             }
         }
-
-        from.removeArmies(attackerLoss);
-        to.removeArmies(defenderLoss);
-
-        if (to.getArmies() <= 0) {
-            handleTerritoryCapture(from, to, move.getArmyCount(), attackerLoss);
-        }
-
-        sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Dice | Attacker: " + arrayToString(attackerRolls)
-                + " | Defender: " + arrayToString(defenderRolls)));
-        sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Losses | Attacker: " + attackerLoss + ", Defender: " + defenderLoss));
     }
 
     /**
-     * Validates if an attack is legal
+     * Tells the players about the eliminations and the win among the events of a move
      * 
-     * @param from Attacking territory
-     * @param to Defending territory
-     * @return true if attack is valid
+     * @param events Events reported by the rules engine
      */
-    private boolean isValidAttack(CommonTerritory from, CommonTerritory to) {
-        return from.getOwner().equals(playerName)
-                && !to.getOwner().equals(playerName)
-                && from.getArmies() > 1
-                && from.getAdjacentTerritories().contains(to.getName());
+    private void publishOutcome(List<CommonEvent> events) {
+        for (CommonEvent event : events) {
+            if (event instanceof CommonEvent.PlayerEliminated e) {
+                String name = gameState.getPlayerName(e.player());
+                LOGGER.info("☠️ " + name + " has been eliminated");
+                ServerHandler eliminated = handlerOf(e.player());
+                if (eliminated != null) {
+                    eliminated.gameEnded = true;
+                    eliminated.sendMessage(new CommonMessages(CommonMessages.Type.LOSE, "❌ You lost the game."));
+                }
+                session.broadcastMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, name + " has been eliminated!"), eliminated);
+            } else if (event instanceof CommonEvent.GameWon e) {
+                LOGGER.info("🏆 " + gameState.getPlayerName(e.player()) + " wins the game!");
+                ServerHandler winner = handlerOf(e.player());
+                if (winner != null) {
+                    winner.gameEnded = true;
+                    winner.sendMessage(new CommonMessages(CommonMessages.Type.WIN, "🏆 You won the game!"));
+                }
+            }
+        }
     }
 
     /**
-     * Handles territory capture after successful attack
+     * Finds the handler of a player of the current game
      * 
-     * @param from Attacking territory
-     * @param to Captured territory
-     * @param armyCount Number of armies to move
-     * @param attackerLoss Number of armies lost in attack
+     * @param id Player id in the game state
+     * @return The player's handler, or null if the player is no longer in the session
      */
-    private void handleTerritoryCapture(CommonTerritory from, CommonTerritory to, int armyCount, int attackerLoss) {
-        String previousOwner = to.getOwner();
-        to.setOwner(playerName);
-        int moveIn = Math.min(from.getArmies() - 1, armyCount - attackerLoss);
-        from.removeArmies(moveIn);
-        to.setArmies(moveIn);
-
-        gameState.getPlayers().get(playerName).addTerritory(to.getName());
-        gameState.getPlayers().get(previousOwner).removeTerritory(to.getName());
+    private ServerHandler handlerOf(int id) {
+        return session.getParticipant(gameState.getPlayerName(id));
     }
 
     /**
-     * Handles fortify move
-     * Processes moving armies between owned territories
+     * Sends a chat message to a player of the current game
      * 
-     * @param move Fortify message
+     * @param id Player id in the game state
+     * @param text The message
      */
-    private void handleFortify(CommonMessages move) {
-        CommonTerritory fromF = gameState.getTerritories().get(move.getFrom());
-        CommonTerritory toF = gameState.getTerritories().get(move.getTo());
-        int count = move.getArmyCount();
-
-        if (!isValidFortify(fromF, toF, count)) {
-            return;
+    private void send(int id, String text) {
+        ServerHandler handler = handlerOf(id);
+        if (handler != null) {
+            handler.sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, text));
         }
-
-        fromF.removeArmies(count);
-        toF.addArmies(count);
-
-        sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Moved " + count + " armies from " + fromF.getName() + " to " + toF.getName()));
-        opponent.sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, playerName + " fortified positions."));
     }
 
     /**
-     * Validates if a fortify move is legal
-     * 
-     * @param from Source territory
-     * @param to Destination territory
-     * @param count Number of armies to move
-     * @return true if fortify is valid
-     */
-    private boolean isValidFortify(CommonTerritory from, CommonTerritory to, int count) {
-        if (!playerName.equals(from.getOwner()) || !playerName.equals(to.getOwner())) {
-            sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "You must own both territories!"));
-            return false;
-        }
-        if (!from.getAdjacentTerritories().contains(to.getName())) {
-            sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Territories are not adjacent!"));
-            return false;
-        }
-        if (from.getArmies() <= count) {
-            sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Not enough armies to move (leave at least 1)!"));
-            return false;
-        }
-        return true;
+     * Sends the full game state to a player who could not apply a delta
+     * Every change of the state is broadcast as soon as it is made, so the current state
+     * is the one the next delta is computed from.
+     */
+    private void handleResync() {
+        LOGGER.warning(playerName + " lost track of the game state, sending a keyframe");
+        sendUpdate(new ServerFrame(gameState));
     }
 
     /**
      * Handles rematch request
-     * Processes player's request for a new game
+     * A new game starts once every player still at the table asked for one
      */
     private void handleRematchRequest() {
         rematchRequested = true;
         LOGGER.info(playerName + " wants a rematch!");
 
-        if (opponent != null && opponent.rematchRequested) {
-            LOGGER.info("Both players requested rematch. Restarting game...");
-            gameState = ServerManager.initializeGame(playerName, opponent.playerName);
-            this.setGameState(gameState);
-            opponent.setGameState(gameState);
-            sendGameState();
-            opponent.sendGameState();
-
-            this.rematchRequested = false;
-            opponent.rematchRequested = false;
-        } else {
-            sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Waiting for opponent to accept rematch..."));
+        List<ServerHandler> table = new ArrayList<>();
+        boolean allRequested = true;
+        for (ServerHandler p : session.getParticipants()) {
+            if (!p.left) {
+                table.add(p);
+                allRequested &= p.rematchRequested;
+            }
         }
-    }
 
-    /**
-     * Handles the end of a player's turn
-     * Updates the current turn player, calculates reinforcements for the next player,
-     * and notifies both players about the turn change
-     */
-    private void handleEndTurn() {
-        if (!gameState.getCurrentTurnPlayer().equals(playerName)) {
-            return;
+        if (allRequested && table.size() >= 2) {
+            LOGGER.info("All players requested rematch. Restarting game...");
+            List<String> names = new ArrayList<>();
+            for (ServerHandler p : table) {
+                names.add(p.playerName);
+            }
+            gameState = ServerManager.initializeGame(names, session.getRandom());
+            for (ServerHandler p : table) {
+                p.setGameState(gameState);
+                p.rematchRequested = false;
+                p.gameEnded = false;
+            }
+            session.broadcastGameState(gameState);
+        } else {
+            sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Waiting for the other players to accept rematch..."));
         }
-
-        gameState.setCurrentTurnPlayer(opponent.playerName);
-        LOGGER.info("Turn passed to: " + opponent.playerName);
-
-        CommonPlayer nextPlayer = gameState.getPlayers().get(opponent.playerName);
-        int reinforcement = gameState.calculateReinforcements(opponent.playerName);
-        nextPlayer.setAvailableArmies(nextPlayer.getAvailableArmies() + reinforcement);
-
-        opponent.sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "You received " + reinforcement + " reinforcement armies!"));
-        sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Turn passed to " + opponent.playerName + "."));
     }
 
     /**
      * Handles player's request to play another game
      * If the current game has ended, adds the player back to the matchmaking queue
+     * The connection stays open; the queue takes over its messages from here on
      */
     private void handlePlayAgain() {
         if (gameEnded) {
             LOGGER.info(playerName + " wants to play again");
-            ServerManager.addPlayer(socket);
-            cleanup();
+            left = true;
+            ServerManager.addPlayer(connection);
+            session.releaseAiPlayers();
         }
     }
 
     /**
      * Handles player's request to exit the game
-     * Notifies the opponent of the win and cleans up the game session
      */
     private void handleExitGame() {
         LOGGER.info(playerName + " is exiting the game");
-        if (opponent != null) {
-            opponent.sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Opponent has left the game. You win!"));
-            opponent.sendMessage(new CommonMessages(CommonMessages.Type.WIN, "🏆 You won the game!"));
-            opponent.gameEnded = true;
-        }
-        cleanup();
+        leaveGame(playerName + " has left the game.");
     }
 
     /**
      * Handles player disconnection
-     * Notifies the opponent of the win if the game hasn't ended
      */
     private void handleDisconnection() {
-        if (opponent != null && !gameEnded) {
-            opponent.sendMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Opponent disconnected. You win!"));
-            opponent.sendMessage(new CommonMessages(CommonMessages.Type.WIN, "🏆 You won the game!"));
-            opponent.gameEnded = true;
-        }
+        leaveGame(playerName + " disconnected.");
+    }
+
+    /**
+     * Removes the player from the table and closes the connection
+     * If the player was still in the game, their territories become neutral, the
+     * other players are told, the turn moves on and the last player standing wins.
+     * AI players are sent away once no remote player is left.
+     * 
+     * @param notice Message for the other players
+     */
+    private void leaveGame(String notice) {
+        boolean playing = gameState != null && !gameEnded;
+        left = true;
         cleanup();
+        if (playing) {
+            session.broadcastMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, notice), this);
+            List<CommonEvent> events = new ArrayList<>();
+            CommonRules.leave(gameState, gameState.indexOfPlayer(playerName), events);
+            publishAndBroadcast(events);
+        }
+        session.releaseAiPlayers();
     }
 
     /**
      * Cleans up the game session
-     * Marks the game as ended and closes the socket connection
+     * Marks the game as ended and closes the player's connection
      */
     private void cleanup() {
         gameEnded = true;
-        closeSocket();
+        connection.close();
     }
 
     /**
-     * Checks if there is a winner in the game
-     * A player wins when their opponent has no territories left
+     * Checks whether the player left the session's table
+     * Players who left receive no further updates from the session
+     * 
+     * @return true if the player left
      */
-    private void checkWinner() {
-        for (CommonPlayer p : gameState.getPlayers().values()) {
-            if (p.getTerritories().isEmpty()) {
-                String winner = !playerName.equals(p.getName()) ? playerName : opponent.playerName;
-                LOGGER.info("🏆 " + winner + " wins the game!");
-                gameEnded = true;
+    boolean hasLeft() {
+        return left;
+    }
 
-                if (playerName.equals(winner)) {
-                    sendMessage(new CommonMessages(CommonMessages.Type.WIN, "🏆 You won the game!"));
-                    opponent.sendMessage(new CommonMessages(CommonMessages.Type.LOSE, "❌ You lost the game."));
-                } else {
-                    sendMessage(new CommonMessages(CommonMessages.Type.LOSE, "❌ You lost the game."));
-                    opponent.sendMessage(new CommonMessages(CommonMessages.Type.WIN, "🏆 You won the game!"));
-                }
-            }
-        }
+    /**
+     * Checks whether the player is an AI player of the server
+     * 
+     * @return true if the connection belongs to an AI player
+     */
+    boolean isAutomated() {
+        return connection.isAutomated();
+    }
+
+    /**
+     * Checks whether the player is falling behind on outgoing frames
+     * 
+     * @return true if the player's outbound queue is congested
+     */
+    boolean isCongested() {
+        return connection.isCongested();
     }
 
     /**
-     * Sends the current game state to the player
-     * Resets the output stream to ensure clean state transmission
+     * Sends a state update that was encoded once for the whole session
+     * Keyframes only refer to their map topology, so it is sent once before the first keyframe using it.
+     * 
+     * @param update Frame holding a keyframe or a delta
      */
-    private void sendGameState() {
-        try {
-            out.reset();
-            out.writeObject(gameState);
-            out.flush();
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Error sending game state to " + playerName + ": " + e.getMessage());
+    void sendUpdate(ServerFrame update) {
+        if (update.getMessage() instanceof CommonState state && state.getTopology() != sentTopology) {
+            sentTopology = state.getTopology();
+            connection.send(sentTopology);
         }
+        connection.send(update);
+    }
+
+    /**
+     * Sends a frame that was encoded once for several players
+     * 
+     * @param frame Frame holding a message
+     */
+    void sendFrame(ServerFrame frame) {
+        connection.send(frame);
     }
 
     /**
@@ -462,32 +485,27 @@ public class ServerHandler implements Runnable {
      * @param move The message to send
      */
     public void sendMessage(CommonMessages move) {
-        try {
-            out.writeObject(move);
-            out.flush();
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Error sending message to " + playerName + ": " + e.getMessage());
-        }
+        connection.send(move);
     }
 
     /**
-     * Rolls a specified number of dice and returns the results in descending order
+     * Describes a move for the log, with all fields needed to replay it
      * 
-     * @param count Number of dice to roll
-     * @return Array of dice roll results in descending order
+     * @param move The move to describe
+     * @return Move type followed by its territories and army count, if any
      */
-    private int[] rollDice(int count) {
-        int[] rolls = new int[count];
-        for (int i = 0; i < count; i++) {
-            rolls[i] = (int) (Math.random() * 6) + 1;
+    private static String describe(CommonMessages move) {
+        StringBuilder text = new StringBuilder(move.getType().toString());
+        if (move.getFrom() != null) {
+            text.append(" from ").append(move.getFrom());
+        }
+        if (move.getTo() != null) {
+            text.append(" to ").append(move.getTo());
         }
-        java.util.Arrays.sort(rolls);
-        for (int i = 0; i < count / 2; i++) {
-            int tmp = rolls[i];
-            rolls[i] = rolls[count - 1 - i];
-            rolls[count - 1 - i] = tmp;
+        if (move.getArmyCount() != 0) {
+            text.append(" x").append(move.getArmyCount());
         }
-        return rolls;
+        return text.toString();
     }
 
     /**
@@ -506,17 +524,4 @@ public class ServerHandler implements Runnable {
         }
         return sb.toString();
     }
-
-    /**
-     * Safely closes the player's socket connection
-     */
-    private void closeSocket() {
-        if (socket != null && !socket.isClosed()) {
-            try {
-                socket.close();
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "Error closing socket for " + playerName + ": " + e.getMessage());
-            }
-        }
-    }
 }
@@ -7,6 +7,8 @@
 
 package server;
 
+import common.CommonCodec;
+
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.logging.*;
@@ -14,6 +16,13 @@ import java.util.logging.*;
 public class ServerLauncher {
     /** Default port number for the game server */
     public static final int PORT = 3131;
+    /** Network transport: "nio" for the selector engine, "blocking" for a thread per connection */
+    public static final String TRANSPORT = System.getProperty("risk.transport", "nio");
+    /** Number of selector threads used by the nio transport */
+    public static final int IO_THREADS = Integer.getInteger("risk.ioThreads",
+            Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+    /** Codec for frame payloads, selected with the "risk.codec" property, shared by every transport */
+    static final CommonCodec CODEC = CommonCodec.configured().forServer();
 
     /**
      * Main method that starts the game server
@@ -31,19 +40,36 @@ public class ServerLauncher {
         } catch (Exception e) {
             System.err.println("Failed to configure log formatter: " + e);
         }
-        System.out.println("Server is running on port " + PORT);
+        System.out.println("Server is running on port " + PORT + " (" + TRANSPORT + " transport, "
+                + (ServerExecutors.usesVirtualThreads() ? "virtual" : "platform") + " threads)");
+
+        try {
+            if ("blocking".equals(TRANSPORT)) {
+                serveBlocking();
+            } else {
+                new ServerNioTransport(IO_THREADS, CODEC).serve(PORT, connection -> {
+                    System.out.println("Player connected: " + connection.getRemoteAddress());
+                    ServerManager.addPlayer(connection);
+                });
+            }
+        } catch (Exception e) {
+            System.err.println("Server error: " + e.getMessage());
+        }
+    }
 
-        // Start server and handle incoming connections
+    /**
+     * Accepts connections with a blocking server socket
+     * Each accepted player gets its own reader thread
+     */
+    private static void serveBlocking() throws Exception {
         try (ServerSocket serverSocket = new ServerSocket(PORT)) {
             while (true) {
                 // Accept new player connection
                 Socket incoming = serverSocket.accept();
                 System.out.println("Player connected: " + incoming.getInetAddress());
                 // Add new player to the game manager
-                ServerManager.addPlayer(incoming);
+                ServerManager.addPlayer(new ServerSocketConnection(incoming, CODEC));
             }
-        } catch (Exception e) {
-            System.err.println("Server error: " + e.getMessage());
         }
     }
 }
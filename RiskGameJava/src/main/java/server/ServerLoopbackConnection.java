@@ -0,0 +1,213 @@
+/**
+ * ServerLoopbackConnection.java
+ * This class connects a client to the server inside the same JVM, without sockets.
+ * Each direction is a mailbox on the session pool that delivers frames in order, so
+ * a loopback player goes through matchmaking, ServerHandler and the real move
+ * processing exactly like a network player. Frames are still encoded and decoded
+ * with the configured codec, which keeps client and server from sharing mutable state.
+ * The server end uses the same codec instance as the network transports, so a
+ * broadcast frame is encoded once for loopback and remote players alike.
+ */
+
+package server;
+
+import client.ClientConnection;
+import common.CommonCodec;
+import common.CommonFrames;
+import common.CommonMessages;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ServerLoopbackConnection implements ServerConnection {
+    /** Logger for connection-level logging */
+    private static final Logger LOGGER = Logger.getLogger(ServerLoopbackConnection.class.getName());
+    /** Number of undelivered frames from which the client counts as congested */
+    private static final int CONGESTED = Math.max(1, ServerOutbound.LIMIT / 4);
+
+    private final CommonCodec clientCodec;                          // Codec of the client end
+    private final CommonCodec serverCodec;                          // Codec of the server end, decoding player messages only
+    private final Consumer<ServerConnection> acceptor;              // Receives the server end once the client opens
+    private final ServerMailbox toServer = new ServerMailbox();     // Delivers client messages in order
+    private final ServerMailbox toClient = new ServerMailbox();     // Delivers server frames in order
+    private final AtomicInteger pending = new AtomicInteger();      // Frames not yet delivered to the client
+    private final AtomicBoolean closed = new AtomicBoolean();       // Whether either side closed
+    private final ClientEnd client = new ClientEnd();               // The client's side of the connection
+    private volatile Listener listener;                             // Receiver on the server side
+    private volatile ClientConnection.Listener clientListener;      // Receiver on the client side
+
+    /**
+     * Constructor for ServerLoopbackConnection
+     *
+     * @param clientCodec Codec the client end encodes moves and decodes frames with
+     * @param serverCodec Codec the server end encodes frames and decodes moves with
+     * @param acceptor Receives the server end when the client opens its end
+     */
+    private ServerLoopbackConnection(CommonCodec clientCodec, CommonCodec serverCodec, Consumer<ServerConnection> acceptor) {
+        this.clientCodec = clientCodec;
+        this.serverCodec = serverCodec;
+        this.acceptor = acceptor;
+    }
+
+    /**
+     * Creates an in-memory connection to this JVM's server
+     * The player joins the matchmaking queue when the client opens the connection
+     *
+     * @return The client's end of the connection
+     */
+    public static ClientConnection connect() {
+        return connect(ServerManager::addPlayer);
+    }
+
+    /**
+     * Creates an in-memory connection whose server end is handed to the given acceptor
+     *
+     * @param acceptor Receives the server end when the client opens its end
+     * @return The client's end of the connection
+     */
+    public static ClientConnection connect(Consumer<ServerConnection> acceptor) {
+        return new ServerLoopbackConnection(CommonCodec.configured(), ServerLauncher.CODEC, acceptor).client;
+    }
+
+    @Override
+    public void open(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void send(ServerFrame frame) {
+        if (closed.get()) {
+            return;
+        }
+        ByteBuffer encoded;
+        try {
+            encoded = frame.encode(serverCodec);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error encoding message for " + getRemoteAddress() + ": " + e.getMessage());
+            return;
+        }
+        if (pending.incrementAndGet() > ServerOutbound.LIMIT) {
+            LOGGER.warning("Outbound queue of " + getRemoteAddress() + " overflowed, closing connection");
+            close();
+            return;
+        }
+        toClient.execute(() -> {
+            pending.decrementAndGet();
+            if (closed.get()) {
+                return;
+            }
+            Object message;
+            try {
+                message = clientCodec.decode(encoded.array(), encoded.arrayOffset() + encoded.position() + CommonFrames.HEADER_BYTES,
+                        encoded.remaining() - CommonFrames.HEADER_BYTES);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error decoding message for " + getRemoteAddress() + ": " + e.getMessage());
+                close();
+                return;
+            }
+            clientListener.onMessage(message);
+        });
+    }
+
+    @Override
+    public boolean isCongested() {
+        return pending.get() >= CONGESTED;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            toClient.execute(() -> clientListener.onDisconnect("Server closed the connection"));
+            disconnected("Connection closed");
+        }
+    }
+
+    @Override
+    public void flushAndClose() {
+        // Frames are delivered in order, so this runs after every frame sent before
+        toClient.execute(this::close);
+    }
+
+    /**
+     * Tells the server side that the connection ended, after every message sent before
+     *
+     * @param reason Description of why the connection ended
+     */
+    private void disconnected(String reason) {
+        toServer.execute(() -> {
+            Listener current = listener;
+            if (current != null) {
+                current.onDisconnect(reason);
+            }
+        });
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return "loopback";
+    }
+
+    /**
+     * The client's side of a loopback connection
+     */
+    private final class ClientEnd implements ClientConnection {
+        private boolean opened = false;     // Whether the server end was handed to the acceptor
+
+        @Override
+        public void open(ClientConnection.Listener listener) {
+            clientListener = listener;
+            synchronized (this) {
+                if (opened) {
+                    return;
+                }
+                opened = true;
+            }
+            acceptor.accept(ServerLoopbackConnection.this);
+        }
+
+        @Override
+        public void send(CommonMessages move) throws IOException {
+            if (closed.get()) {
+                throw new IOException("Connection closed");
+            }
+            byte[] body = clientCodec.encode(move);
+            toServer.execute(() -> {
+                if (closed.get()) {
+                    return;
+                }
+                Object message;
+                try {
+                    message = serverCodec.decode(body, 0, body.length);
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, "Error decoding message from " + getRemoteAddress() + ": " + e.getMessage());
+                    ServerLoopbackConnection.this.close();
+                    return;
+                }
+                listener.onMessage(message);
+            });
+        }
+
+        @Override
+        public boolean isConnected() {
+            return !closed.get();
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                toClient.execute(() -> clientListener.onDisconnect("Connection closed"));
+                disconnected("Player left the game");
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * ServerMailbox.java
+ * This class serializes all work of one game session.
+ * Both players' handlers post their moves, disconnects and session events here,
+ * and the mailbox runs them one at a time, in arrival order, on the shared session
+ * pool. The session's game state therefore has a single writer and needs no locks,
+ * while an idle session holds no thread at all.
+ */
+
+package server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ServerMailbox implements Executor {
+    /** Logger for failures of session tasks */
+    private static final Logger LOGGER = Logger.getLogger(ServerMailbox.class.getName());
+    /** Tasks run in one turn before the pool thread is handed to other sessions */
+    private static final int BATCH_SIZE = 64;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();    // Pending tasks
+    private final AtomicBoolean scheduled = new AtomicBoolean();            // Whether a drain is queued or running
+
+    /**
+     * Posts a task to the session
+     * Tasks never run concurrently with each other
+     *
+     * @param task Task to run
+     */
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        schedule();
+    }
+
+    /**
+     * Queues a drain on the session pool unless one is already queued or running
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            ServerExecutors.executeSessionTask(this::drain);
+        }
+    }
+
+    /**
+     * Runs up to BATCH_SIZE pending tasks, then reschedules if more arrived
+     */
+    private void drain() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                break;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Error in session task", e);
+            }
+        }
+        scheduled.set(false);
+        if (!tasks.isEmpty()) {
+            schedule();
+        }
+    }
+}
@@ -7,81 +7,87 @@
 package server;
 
 import common.*;
-import java.net.Socket;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class ServerManager {
+    /** Number of players seated at one game, from 2 to CommonPlayer.MAX_PLAYERS */
+    public static final int PLAYERS_PER_GAME = Math.max(2, Math.min(CommonPlayer.MAX_PLAYERS, Integer.getInteger("risk.playersPerGame", 2)));
     /** Queue for players waiting to be matched */
-    private static final Queue<Socket> waitingPlayers = new LinkedList<>();
+    private static final ServerMatchmaker MATCHMAKER = new ServerMatchmaker(PLAYERS_PER_GAME, ServerSession::startSession);
     /** Number of armies each player starts with */
     private static final int STARTING_ARMIES = 20;
 
     /**
      * Adds a new player to the matchmaking queue
-     * If enough players are waiting, starts a new game session
+     * A new game session starts as soon as PLAYERS_PER_GAME live players are waiting
      * 
-     * @param socket Socket connection of the new player
+     * @param connection Connection of the new player
      */
-    public static synchronized void addPlayer(Socket socket) {
-        waitingPlayers.add(socket);
-        System.out.println("Player added to matchmaking queue. Current size: " + waitingPlayers.size());
+    public static void addPlayer(ServerConnection connection) {
+        MATCHMAKER.enqueue(connection);
+    }
 
-        // Start a new game session when 2 players are available
-        if (waitingPlayers.size() >= 2) {
-            Socket player1 = waitingPlayers.poll();
-            Socket player2 = waitingPlayers.poll();
-            System.out.println("Matching 2 players and starting a session...");
-            new Thread(() -> ServerSession.startSession(player1, player2)).start();
-        }
+    /**
+     * Gets the matchmaking queue and its metrics
+     * 
+     * @return The server's matchmaker
+     */
+    public static ServerMatchmaker getMatchmaker() {
+        return MATCHMAKER;
     }
 
     /**
-     * Initializes a new game state for two players
-     * Creates the game map, assigns territories, and sets up initial armies
+     * Initializes a new game state for the players of a session
+     * Creates the game map, assigns territories, and sets up initial armies.
+     * Players take their seats, colors and turns in the given order.
      * 
-     * @param player1Name Name of the first player
-     * @param player2Name Name of the second player
+     * @param playerNames Names of the players, between 2 and CommonPlayer.MAX_PLAYERS
      * @return Initialized game state
      */
-    public static CommonState initializeGame(String player1Name, String player2Name) {
-        CommonState gameState = new CommonState();
-
-        // Generate and add territories to the game state
-        Map<String, CommonTerritory> map = CommonMapCreation.generateMap();
-        for (CommonTerritory t : map.values()) {
-            gameState.addTerritory(t);
-        }
-
-        // Create player objects with their colors
-        CommonPlayer player1 = new CommonPlayer(player1Name, "RED");
-        CommonPlayer player2 = new CommonPlayer(player2Name, "BLUE");
+    public static CommonState initializeGame(List<String> playerNames) {
+        return initializeGame(playerNames, ThreadLocalRandom.current());
+    }
 
-        // Set initial armies for both players
-        player1.setAvailableArmies(STARTING_ARMIES);
-        player2.setAvailableArmies(STARTING_ARMIES);
+    /**
+     * Initializes a new game state, taking all random choices from the given generator
+     * The same names and generator state always produce the same game
+     * 
+     * @param playerNames Names of the players, between 2 and CommonPlayer.MAX_PLAYERS
+     * @param rng Source of the territory deal and the first turn
+     * @return Initialized game state
+     */
+    public static CommonState initializeGame(List<String> playerNames, RandomGenerator rng) {
+        // Create the game state on the standard map
+        CommonState gameState = new CommonState(CommonMapCreation.standardTopology());
 
-        gameState.addPlayer(player1);
-        gameState.addPlayer(player2);
+        // Create the players with their colors and initial armies
+        for (int seat = 0; seat < playerNames.size(); seat++) {
+            CommonPlayer player = gameState.addPlayer(playerNames.get(seat), CommonPlayer.COLORS.get(seat));
+            player.setAvailableArmies(STARTING_ARMIES);
+        }
 
-        // Randomly assign territories to players
-        List<CommonTerritory> territories = new ArrayList<>(map.values());
-        Collections.shuffle(territories);
+        // Randomly assign territories to players with a Fisher-Yates shuffle
+        int[] territories = new int[gameState.getTopology().getTerritoryCount()];
+        for (int t = 0; t < territories.length; t++) {
+            territories[t] = t;
+        }
+        for (int i = territories.length - 1; i > 0; i--) {
+            int j = rng.nextInt(i + 1);
+            int tmp = territories[i];
+            territories[i] = territories[j];
+            territories[j] = tmp;
+        }
 
-        // Alternate territory assignment between players
-        boolean assignToPlayer1 = true;
-        for (CommonTerritory t : territories) {
-            String owner = assignToPlayer1 ? player1Name : player2Name;
-            t.setOwner(owner);
-            t.setArmies(1);
-            CommonPlayer player = gameState.getPlayers().get(owner);
-            player.addTerritory(t.getName());
-            assignToPlayer1 = !assignToPlayer1;
+        // Deal the territories round the table
+        for (int i = 0; i < territories.length; i++) {
+            gameState.setOwner(territories[i], i % playerNames.size());
+            gameState.setArmies(territories[i], 1);
         }
 
         // Randomly determine first player
-        String firstTurn = Math.random() < 0.5 ? player1Name : player2Name;
-        gameState.setCurrentTurnPlayer(firstTurn);
-        System.out.println("🎲 First turn: " + firstTurn);
+        gameState.setCurrentTurn(rng.nextInt(playerNames.size()));
 
         return gameState;
     }
@@ -0,0 +1,405 @@
+/**
+ * ServerMatchmaker.java
+ * This class seats waiting players at game sessions.
+ * Joins go to a lock-free queue and pairing runs in the matchmaker's own mailbox, so
+ * bursts of joins never contend on a lock. Every waiting connection is read while it
+ * waits, which detects players who leave the queue, and it expires after a timeout.
+ * The player's JOIN is kept and handed to the session once the player is matched;
+ * anything else sent while waiting is dropped, so a waiting player holds no more
+ * than one message however much they send. When AI fill-in is enabled, a player
+ * who has waited long enough gets the empty seats of their table filled with AI players.
+ */
+
+package server;
+
+import common.CommonMessages;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+public class ServerMatchmaker {
+    /** Logger for matchmaking metrics */
+    private static final Logger LOGGER = Logger.getLogger(ServerMatchmaker.class.getName());
+    /** Time a player may wait for an opponent before being sent away */
+    public static final long QUEUE_TIMEOUT_MILLIS = Long.getLong("risk.queueTimeout", 300_000L);
+    /** Time a player waits before empty seats are given to AI players, negative to never fill them */
+    public static final long AI_FILL_MILLIS = Long.getLong("risk.aiFillAfter", -1L);
+    /** Interval between two metrics log lines */
+    private static final long METRICS_INTERVAL_SECONDS = 30;
+
+    private final int tableSize;                                          // Players per session
+    private final Consumer<List<ServerConnection>> onMatch;               // Starts a session for a table
+    private final Queue<Ticket> queue = new ConcurrentLinkedQueue<>();    // Joined players, oldest first
+    private final ServerMailbox mailbox = new ServerMailbox();            // Runs all matching
+    private final List<Ticket> held = new ArrayList<>();                  // Players waiting for a full table, mailbox only
+
+    // Metrics
+    private final AtomicInteger waiting = new AtomicInteger();            // Players currently waiting
+    private final LongAdder matched = new LongAdder();                    // Players placed in a session
+    private final LongAdder left = new LongAdder();                       // Players who disconnected while waiting
+    private final LongAdder expired = new LongAdder();                    // Players sent away after the timeout
+    private final AtomicLong totalWaitNanos = new AtomicLong();           // Summed wait of matched players
+    private final AtomicLong maxWaitNanos = new AtomicLong();             // Longest wait of a matched player
+
+    /**
+     * Constructor for ServerMatchmaker
+     *
+     * @param tableSize Number of players seated at one session
+     * @param onMatch Receiver of the connections of every full table, in arrival order
+     */
+    public ServerMatchmaker(int tableSize, Consumer<List<ServerConnection>> onMatch) {
+        this.tableSize = tableSize;
+        this.onMatch = onMatch;
+        scheduleMetrics();
+    }
+
+    /**
+     * Adds a player to the queue
+     * The connection is read from now on, so a player who leaves is noticed while waiting.
+     * A player who plays again comes back with the ticket of their last wait, which
+     * is replaced by a new ticket on the same connection instead of being wrapped.
+     *
+     * @param connection Connection of the new player
+     */
+    public void enqueue(ServerConnection connection) {
+        enqueue(connection, null);
+    }
+
+    /**
+     * Adds a player who already sent their name to the queue
+     * Their JOIN is handed to the next session as if they had sent it again.
+     *
+     * @param connection Connection of the player
+     * @param name Name the player joined with, or null if their JOIN is still to come
+     * @return The ticket now receiving the connection's messages
+     */
+    ServerConnection.Listener enqueue(ServerConnection connection, String name) {
+        if (connection instanceof Ticket previous) {
+            connection = previous.connection;
+        }
+        Ticket ticket = new Ticket(connection);
+        if (name != null) {
+            ticket.join = new CommonMessages(CommonMessages.Type.JOIN, name);
+        }
+        waiting.incrementAndGet();
+        connection.open(ticket);
+        ticket.expiry = ServerExecutors.schedule(() -> mailbox.execute(ticket::expire),
+                QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        queue.add(ticket);
+        mailbox.execute(this::match);
+        if (AI_FILL_MILLIS >= 0) {
+            ServerExecutors.schedule(() -> mailbox.execute(this::fillWithAi), AI_FILL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return ticket;
+    }
+
+    /**
+     * Gives the empty seats of the table being filled to AI players
+     * Only done once the longest waiting player has waited for the fill-in time;
+     * players who are already waiting together still sit at the same table.
+     * Runs in the matchmaker mailbox
+     */
+    private void fillWithAi() {
+        match();
+        held.removeIf(t -> !t.isWaiting());
+        if (held.isEmpty() || System.nanoTime() - held.get(0).enqueuedAt < TimeUnit.MILLISECONDS.toNanos(AI_FILL_MILLIS)) {
+            return;
+        }
+        while (held.size() < tableSize) {
+            ServerAiPlayer ai = new ServerAiPlayer();
+            Ticket ticket = new Ticket(ai);
+            waiting.incrementAndGet();
+            ai.open(ticket);
+            held.add(ticket);
+        }
+        seatTable();
+    }
+
+    /**
+     * Seats queued players in arrival order, skipping players who are gone
+     * Runs in the matchmaker mailbox
+     */
+    private void match() {
+        Ticket ticket;
+        while ((ticket = queue.poll()) != null) {
+            if (!ticket.isWaiting()) {
+                continue;
+            }
+            held.removeIf(t -> !t.isWaiting());
+            held.add(ticket);
+            if (held.size() == tableSize) {
+                seatTable();
+            }
+        }
+    }
+
+    /**
+     * Starts a session for the held players if all of them are still there
+     * Players who left in the meantime are dropped and the others keep waiting
+     * Runs in the matchmaker mailbox
+     */
+    private void seatTable() {
+        List<Ticket> claimed = new ArrayList<>(tableSize);
+        for (Ticket t : held) {
+            if (t.claim()) {
+                claimed.add(t);
+            }
+        }
+        held.clear();
+        if (claimed.size() < tableSize) {
+            for (Ticket t : claimed) {
+                if (t.release()) {
+                    held.add(t);
+                }
+            }
+            return;
+        }
+        for (Ticket t : claimed) {
+            t.seated();
+        }
+        onMatch.accept(new ArrayList<>(claimed));
+    }
+
+    /**
+     * Gets the number of players currently waiting
+     *
+     * @return Queue depth
+     */
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+
+    /**
+     * Gets the average time matched players waited
+     *
+     * @return Average wait in milliseconds, 0 before the first match
+     */
+    public double getAverageWaitMillis() {
+        long count = matched.sum();
+        return count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * Gets the longest time a matched player waited
+     *
+     * @return Maximum wait in milliseconds
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    /**
+     * Gets the number of players placed in a session
+     *
+     * @return Matched players
+     */
+    public long getMatchedCount() {
+        return matched.sum();
+    }
+
+    /**
+     * Gets the number of players who disconnected while waiting
+     *
+     * @return Players who left the queue
+     */
+    public long getLeftCount() {
+        return left.sum();
+    }
+
+    /**
+     * Gets the number of players sent away after the queue timeout
+     *
+     * @return Expired players
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Logs the metrics periodically while there is matchmaking activity
+     */
+    private void scheduleMetrics() {
+        long[] last = {-1};
+        Runnable report = new Runnable() {
+            @Override
+            public void run() {
+                long activity = matched.sum() + left.sum() + expired.sum() + waiting.get();
+                if (activity != last[0]) {
+                    last[0] = activity;
+                    LOGGER.info(String.format("Matchmaking: depth=%d matched=%d left=%d expired=%d avgWait=%.1fms maxWait=%.1fms",
+                            getQueueDepth(), getMatchedCount(), getLeftCount(), getExpiredCount(),
+                            getAverageWaitMillis(), getMaxWaitMillis()));
+                }
+                ServerExecutors.schedule(this, METRICS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            }
+        };
+        ServerExecutors.schedule(report, METRICS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A waiting player
+     * It listens to the connection while the player waits and stands in for the
+     * connection once matched: the session's listener receives the JOIN kept while
+     * waiting first, then everything that follows.
+     */
+    private final class Ticket implements ServerConnection, ServerConnection.Listener {
+        /** Still in the queue */
+        private static final int WAITING = 0;
+        /** Claimed for a table or handed to a session */
+        private static final int MATCHED = 1;
+        /** Disconnected or expired while waiting */
+        private static final int GONE = 2;
+
+        private final ServerConnection connection;                      // The player's connection
+        private final long enqueuedAt = System.nanoTime();              // Enqueue timestamp
+        private final AtomicInteger state = new AtomicInteger(WAITING); // WAITING, MATCHED or GONE
+        private CommonMessages join;                                    // First JOIN received while waiting
+        private Listener target;                                        // Session listener, once attached
+        private String disconnectReason;                                // Set if the player left before attach
+        private volatile ScheduledFuture<?> expiry;                     // Timeout of the wait
+
+        Ticket(ServerConnection connection) {
+            this.connection = connection;
+        }
+
+        boolean isWaiting() {
+            return state.get() == WAITING;
+        }
+
+        /**
+         * Moves the ticket from waiting to matched
+         *
+         * @return false if the player left in the meantime
+         */
+        boolean claim() {
+            return state.compareAndSet(WAITING, MATCHED);
+        }
+
+        /**
+         * Moves a claimed ticket back to waiting because its table was not completed
+         * A player who disconnected while claimed leaves the queue instead
+         *
+         * @return false if the player is gone
+         */
+        synchronized boolean release() {
+            if (disconnectReason != null) {
+                state.set(GONE);
+                waiting.decrementAndGet();
+                left.increment();
+                return false;
+            }
+            state.set(WAITING);
+            return true;
+        }
+
+        /**
+         * Takes a claimed ticket out of the queue and records its wait
+         */
+        void seated() {
+            waiting.decrementAndGet();
+            ScheduledFuture<?> timeout = expiry;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            long waited = System.nanoTime() - enqueuedAt;
+            matched.increment();
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+
+        /**
+         * Sends the player away after the queue timeout
+         */
+        void expire() {
+            if (state.compareAndSet(WAITING, GONE)) {
+                waiting.decrementAndGet();
+                expired.increment();
+                connection.send(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "No opponent found. Please try again later."));
+                connection.flushAndClose();
+            }
+        }
+
+        /**
+         * Passes a message on to the session, or keeps it while waiting if it is the first JOIN
+         * The session ignores moves before the game starts and every JOIN after the
+         * first, so nothing else needs to be kept.
+         */
+        @Override
+        public synchronized void onMessage(Object message) {
+            if (target != null) {
+                target.onMessage(message);
+            } else if (join == null && message instanceof CommonMessages move && move.getType() == CommonMessages.Type.JOIN) {
+                join = move;
+            }
+        }
+
+        @Override
+        public synchronized void onDisconnect(String reason) {
+            if (state.compareAndSet(WAITING, GONE)) {
+                waiting.decrementAndGet();
+                left.increment();
+            }
+            if (target != null) {
+                target.onDisconnect(reason);
+            } else {
+                disconnectReason = reason;
+            }
+        }
+
+        @Override
+        public synchronized void open(Listener listener) {
+            target = listener;
+            if (join != null) {
+                listener.onMessage(join);
+                join = null;
+            }
+            if (disconnectReason != null) {
+                listener.onDisconnect(disconnectReason);
+            }
+        }
+
+        @Override
+        public void send(ServerFrame frame) {
+            connection.send(frame);
+        }
+
+        @Override
+        public boolean isCongested() {
+            return connection.isCongested();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return connection.isOpen();
+        }
+
+        @Override
+        public boolean isAutomated() {
+            return connection.isAutomated();
+        }
+
+        @Override
+        public void close() {
+            connection.close();
+        }
+
+        @Override
+        public void flushAndClose() {
+            connection.flushAndClose();
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return connection.getRemoteAddress();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * ServerNioConnection.java
+ * This class implements a player connection served by the non-blocking selector transport.
+ * It keeps a per-connection read buffer that is split into length-prefixed frames,
+ * and a bounded ServerOutbound queue of outgoing frames that is drained whenever the
+ * channel becomes writable.
+ */
+
+package server;
+
+import common.CommonCodec;
+import common.CommonFrames;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ServerNioConnection implements ServerConnection {
+    /** Logger for connection-level logging */
+    private static final Logger LOGGER = Logger.getLogger(ServerNioConnection.class.getName());
+    /** Initial size of the read buffer, enough for any client move */
+    private static final int INITIAL_READ_BYTES = 1024;
+
+    private final SocketChannel channel;                            // Player's channel
+    private final ServerNioTransport.IoLoop loop;                   // Selector thread owning the channel
+    private final CommonCodec codec;                                // Codec for frame payloads
+    private final String remoteAddress;                             // Cached remote address
+    private final ServerOutbound writeQueue = new ServerOutbound();  // Frames waiting to be written
+    private ByteBuffer pendingWrite;                                // Partly written frame, loop thread only
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BYTES);
+    private SelectionKey key;                                       // Registration, loop thread only
+    private volatile Listener listener;                             // Receiver of decoded messages
+
+    /**
+     * Constructor for ServerNioConnection
+     *
+     * @param channel Accepted non-blocking channel
+     * @param loop Selector thread that will serve the channel
+     * @param codec Codec for frame payloads
+     */
+    ServerNioConnection(SocketChannel channel, ServerNioTransport.IoLoop loop, CommonCodec codec) {
+        this.channel = channel;
+        this.loop = loop;
+        this.codec = codec;
+        String address;
+        try {
+            address = String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            address = "unknown";
+        }
+        this.remoteAddress = address;
+    }
+
+    @Override
+    public void open(Listener listener) {
+        boolean first = this.listener == null;
+        this.listener = listener;
+        if (first) {
+            loop.execute(this::registerOnLoop);
+        }
+    }
+
+    /**
+     * Registers the channel with the selector, on the loop thread
+     */
+    private void registerOnLoop() {
+        if (closed.get()) {
+            return;
+        }
+        try {
+            int ops = SelectionKey.OP_READ;
+            if ((!writeQueue.isEmpty() || writeQueue.isClosed()) && writeScheduled.compareAndSet(false, true)) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key = loop.register(channel, ops, this);
+        } catch (IOException e) {
+            closeOnLoop(e.getMessage());
+        }
+    }
+
+    @Override
+    public void send(ServerFrame frame) {
+        if (closed.get()) {
+            return;
+        }
+        boolean queued;
+        try {
+            queued = writeQueue.offer(frame.encode(codec), frame.getKind());
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error encoding message for " + remoteAddress + ": " + e.getMessage());
+            return;
+        }
+        if (!queued) {
+            if (!writeQueue.isClosed()) {
+                LOGGER.warning("Outbound queue of " + remoteAddress + " overflowed, closing connection");
+                close();
+            }
+            return;
+        }
+        if (writeScheduled.compareAndSet(false, true)) {
+            loop.execute(this::enableWrite);
+        }
+    }
+
+    /**
+     * Adds write interest for the channel, on the loop thread
+     */
+    private void enableWrite() {
+        if (key != null && key.isValid()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        } else {
+            // Not registered yet; registration picks up the pending writes
+            writeScheduled.set(false);
+        }
+    }
+
+    /**
+     * Reads available bytes and delivers every complete frame to the listener
+     * Called on the loop thread when the channel is readable
+     */
+    void onReadable() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            throw new IOException("Player left the game");
+        }
+        readBuffer.flip();
+        while (readBuffer.remaining() >= CommonFrames.HEADER_BYTES) {
+            int start = readBuffer.position();
+            int length = readBuffer.getInt(start);
+            CommonFrames.checkLength(length);
+            int frameBytes = CommonFrames.HEADER_BYTES + length;
+            if (readBuffer.remaining() < frameBytes) {
+                if (readBuffer.capacity() < frameBytes) {
+                    growReadBuffer(frameBytes);
+                    return;
+                }
+                break;
+            }
+            Object message = codec.decode(readBuffer.array(), start + CommonFrames.HEADER_BYTES, length);
+            readBuffer.position(start + frameBytes);
+            listener.onMessage(message);
+        }
+        readBuffer.compact();
+    }
+
+    /**
+     * Replaces the read buffer by a larger one holding the same unread bytes
+     * The buffer is left in write mode
+     *
+     * @param minCapacity Capacity needed for the pending frame
+     */
+    private void growReadBuffer(int minCapacity) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(minCapacity, readBuffer.capacity() * 2));
+        larger.put(readBuffer);
+        readBuffer = larger;
+    }
+
+    /**
+     * Writes queued frames until the queue is empty or the socket buffer is full
+     * Closes the connection once a queue closed by flushAndClose is drained.
+     * Called on the loop thread when the channel is writable
+     */
+    void onWritable() throws IOException {
+        if (pendingWrite == null) {
+            pendingWrite = writeQueue.poll();
+        }
+        while (pendingWrite != null) {
+            channel.write(pendingWrite);
+            if (pendingWrite.hasRemaining()) {
+                return;
+            }
+            pendingWrite = writeQueue.poll();
+        }
+        if (writeQueue.isClosed()) {
+            closeOnLoop("Connection closed by server");
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        writeScheduled.set(false);
+        // A sender may have queued a frame or closed the queue after the loop above saw an empty queue
+        if ((!writeQueue.isEmpty() || writeQueue.isClosed()) && writeScheduled.compareAndSet(false, true)) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    @Override
+    public boolean isCongested() {
+        return writeQueue.isCongested();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    @Override
+    public void close() {
+        if (!closed.get()) {
+            loop.execute(() -> closeOnLoop("Connection closed by server"));
+        }
+    }
+
+    @Override
+    public void flushAndClose() {
+        if (closed.get()) {
+            return;
+        }
+        writeQueue.closeWhenDrained();
+        if (writeScheduled.compareAndSet(false, true)) {
+            loop.execute(this::enableWrite);
+        }
+    }
+
+    /**
+     * Closes the channel and notifies the listener, on the loop thread
+     *
+     * @param reason Description of why the connection ended
+     */
+    void closeOnLoop(String reason) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error closing channel " + remoteAddress + ": " + e.getMessage());
+        }
+        writeQueue.close();
+        pendingWrite = null;
+        if (listener != null) {
+            listener.onDisconnect(reason != null ? reason : "Player left the game");
+        }
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+}
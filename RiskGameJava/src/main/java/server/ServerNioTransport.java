@@ -0,0 +1,152 @@
+/**
+ * ServerNioTransport.java
+ * This class implements the non-blocking network transport of the Risk game server.
+ * A single acceptor hands new channels to a small, fixed pool of selector threads,
+ * each of which multiplexes reads and writes for many player connections.
+ */
+
+package server;
+
+import common.CommonCodec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.*;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ServerNioTransport {
+    /** Logger for transport-level logging */
+    private static final Logger LOGGER = Logger.getLogger(ServerNioTransport.class.getName());
+
+    private final IoLoop[] loops;                                   // Selector threads
+    private final CommonCodec codec;                                // Codec for frame payloads
+    private final AtomicInteger nextLoop = new AtomicInteger();     // Round-robin cursor
+
+    /**
+     * Constructor for ServerNioTransport
+     * Opens one selector per I/O thread and starts the threads
+     *
+     * @param ioThreads Number of selector threads to run
+     * @param codec Codec for frame payloads
+     */
+    public ServerNioTransport(int ioThreads, CommonCodec codec) throws IOException {
+        this.codec = codec;
+        loops = new IoLoop[Math.max(1, ioThreads)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop(Selector.open());
+            Thread thread = new Thread(loops[i], "nio-io-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Accepts connections on the given port until the server channel fails
+     * Every accepted channel is assigned to an I/O thread and passed to the accept handler
+     *
+     * @param port Port to listen on
+     * @param onAccept Receiver of every new player connection
+     */
+    public void serve(int port, Consumer<ServerConnection> onAccept) throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port));
+            while (true) {
+                SocketChannel channel = server.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                IoLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+                onAccept.accept(new ServerNioConnection(channel, loop, codec));
+            }
+        }
+    }
+
+    /**
+     * A selector thread serving a subset of the connections
+     * Other threads interact with it only through its task queue
+     */
+    static final class IoLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        IoLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        /**
+         * Schedules a task to run on this loop's thread
+         *
+         * @param task Task to run
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        /**
+         * Registers a channel with this loop's selector
+         * Must be called on the loop thread
+         *
+         * @param channel Channel to register
+         * @param ops Initial interest set
+         * @param connection Connection attached to the key
+         * @return The registration key
+         */
+        SelectionKey register(SocketChannel channel, int ops, ServerNioConnection connection) throws IOException {
+            return channel.register(selector, ops, connection);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        dispatch(key);
+                    }
+                    selector.selectedKeys().clear();
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "I/O loop error: " + e.getMessage());
+                } catch (Error e) {
+                    LOGGER.log(Level.SEVERE, "I/O loop " + Thread.currentThread().getName()
+                            + " stopped, its connections are no longer served", e);
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Dispatches the ready operations of a key to its connection
+         * Any failure closes the connection: after a decode or listener error the
+         * connection's read buffer and frame stream can no longer be trusted.
+         *
+         * @param key Selected key
+         */
+        private void dispatch(SelectionKey key) {
+            ServerNioConnection connection = (ServerNioConnection) key.attachment();
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    connection.onReadable();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.onWritable();
+                }
+            } catch (IOException e) {
+                String reason = e.getMessage() != null ? e.getMessage() : "Player left the game";
+                connection.closeOnLoop(reason);
+            } catch (RuntimeException | Error e) {
+                // Errors such as an OutOfMemoryError are confined to the connection that caused them
+                LOGGER.log(Level.SEVERE, "Error handling message from " + connection.getRemoteAddress(), e);
+                connection.closeOnLoop("Protocol error");
+            }
+        }
+    }
+}
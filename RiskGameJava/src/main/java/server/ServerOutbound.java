@@ -0,0 +1,220 @@
+/**
+ * ServerOutbound.java
+ * This class is the bounded queue of encoded frames waiting to be written to one player.
+ * Frames are drained by the connection's own writer, so a slow player never blocks the
+ * session that sends to it.
+ * When the queue backs up, state snapshots are conflated: queuing a full CommonState
+ * keyframe drops every keyframe and delta still waiting, because the new keyframe
+ * supersedes them. All other frames (chat, WIN/LOSE, topologies) are never dropped
+ * and keep their order.
+ */
+
+package server;
+
+import common.CommonState;
+import common.CommonStateDelta;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ServerOutbound {
+    /** Maximum number of frames waiting for one player before the connection is dropped */
+    public static final int LIMIT = Integer.getInteger("risk.outboundLimit", 256);
+    /** Number of waiting frames from which the queue counts as congested */
+    private static final int CONGESTED = Math.max(1, LIMIT / 4);
+
+    /**
+     * How a frame may be treated while it waits
+     */
+    enum Kind {
+        /** Must be delivered, in order */
+        ORDERED,
+        /** Full state, supersedes every earlier state frame */
+        KEYFRAME,
+        /** State change, superseded by any later keyframe */
+        DELTA
+    }
+
+    /**
+     * A waiting frame
+     */
+    private record Entry(ByteBuffer frame, Kind kind) {
+    }
+
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();   // Waiting frames, oldest first
+    private final ReentrantLock lock = new ReentrantLock();         // Guards all fields
+    private final Condition notEmpty = lock.newCondition();         // Signalled when a frame is queued
+    private boolean closed = false;                                 // Whether the queue was closed
+    private long conflated = 0;                                     // Number of dropped state frames
+
+    /**
+     * Gets how a message may be treated while it waits
+     *
+     * @param message The message being sent
+     * @return KEYFRAME for states, DELTA for deltas, ORDERED for everything else
+     */
+    static Kind kindOf(Object message) {
+        if (message instanceof CommonState) {
+            return Kind.KEYFRAME;
+        }
+        if (message instanceof CommonStateDelta) {
+            return Kind.DELTA;
+        }
+        return Kind.ORDERED;
+    }
+
+    /**
+     * Queues a frame, conflating waiting state frames when a keyframe is queued
+     *
+     * @param frame Encoded frame
+     * @param kind How the frame may be treated while it waits
+     * @return false if the queue is closed or over its limit even after conflation
+     */
+    public boolean offer(ByteBuffer frame, Kind kind) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (kind == Kind.KEYFRAME) {
+                Iterator<Entry> it = entries.iterator();
+                while (it.hasNext()) {
+                    if (it.next().kind() != Kind.ORDERED) {
+                        it.remove();
+                        conflated++;
+                    }
+                }
+            }
+            if (entries.size() >= LIMIT) {
+                return false;
+            }
+            entries.add(new Entry(frame, kind));
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the oldest frame without waiting
+     * A removed frame belongs to the writer and is no longer subject to conflation
+     *
+     * @return The frame, or null if none is waiting
+     */
+    public ByteBuffer poll() {
+        lock.lock();
+        try {
+            Entry entry = entries.poll();
+            return entry != null ? entry.frame() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the oldest frame, waiting until one is queued
+     *
+     * @return The frame, or null once the queue is closed and empty
+     * @throws InterruptedException if the writer is interrupted while waiting
+     */
+    public ByteBuffer take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (entries.isEmpty() && !closed) {
+                notEmpty.await();
+            }
+            Entry entry = entries.poll();
+            return entry != null ? entry.frame() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether no frame is waiting
+     *
+     * @return true if the queue is empty
+     */
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return entries.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether the player is falling behind
+     *
+     * @return true if a quarter of the limit or more is waiting
+     */
+    public boolean isCongested() {
+        lock.lock();
+        try {
+            return entries.size() >= CONGESTED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of state frames dropped by conflation so far
+     *
+     * @return Number of dropped frames
+     */
+    public long getConflatedCount() {
+        lock.lock();
+        try {
+            return conflated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting frames but keeps the waiting ones for the writer
+     * The writer sees the queue as closed once it has taken the last frame
+     */
+    public void closeWhenDrained() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether the queue stopped accepting frames
+     *
+     * @return true once close or closeWhenDrained was called
+     */
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all waiting frames and wakes up a waiting writer
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            entries.clear();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,106 +1,278 @@
 /**
  * ServerSession.java
- * This class manages individual game sessions between two players.
+ * This class manages individual game sessions between two or more players.
  * It handles the setup of player connections, game initialization,
  * and session lifecycle management.
+ * A session owns the mailbox that runs all of its game logic, and the state tracker
+ * whose updates are encoded once and broadcast to every participant.
+ * All random choices of a session, the territory deal, the first turn and the dice,
+ * come from one generator seeded with the session seed that is printed at start.
+ * A game is replayed exactly by creating a SplittableRandom with that seed, passing
+ * it to ServerManager.initializeGame and then to CommonRules for every logged move.
  */
 
 package server;
 
+import common.CommonMessages;
 import common.CommonState;
 
-import java.io.IOException;
-import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.random.RandomGenerator;
 
 public class ServerSession {
+    /** Time all players have to send their names */
+    private static final long JOIN_TIMEOUT_MILLIS = 30000;
+    /** Seed given to every session by the "risk.seed" system property, or null for random seeds */
+    private static final Long FIXED_SEED = Long.getLong("risk.seed");
+
+    private final ServerMailbox mailbox = new ServerMailbox();                  // Runs all game logic of the session
+    private final ServerStateTracker stateTracker = new ServerStateTracker();   // What the participants last received
+    private final List<ServerHandler> participants = new ArrayList<>();         // Players in seat order, receivers of all updates
+    private final long seed = FIXED_SEED != null ? FIXED_SEED : ThreadLocalRandom.current().nextLong(); // Seed of the session's random choices
+    private final SplittableRandom random = new SplittableRandom(seed);         // Deal and dice of the session's games
+    private final CompletableFuture<Void> handshake = new CompletableFuture<>(); // Completed once all players joined
+
+    /**
+     * Gets the mailbox running the session's game logic
+     * 
+     * @return The session mailbox
+     */
+    public ServerMailbox getMailbox() {
+        return mailbox;
+    }
+
+    /**
+     * Gets the seed of the session's random choices
+     * 
+     * @return The session seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the generator for the deal and the dice of the session's games
+     * The generator is not thread-safe and must only be used in the session mailbox.
+     * 
+     * @return The session's random generator
+     */
+    RandomGenerator getRandom() {
+        return random;
+    }
+
     /**
-     * Starts a new game session between two players
-     * Sets up player handlers, waits for player names,
-     * and initializes the game state
+     * Adds a receiver of the session's state updates
+     * Must be called before the session's first broadcast
      * 
-     * @param s1 Socket connection for the first player
-     * @param s2 Socket connection for the second player
+     * @param handler The participant's handler
      */
-    public static void startSession(Socket s1, Socket s2) {
-        ServerHandler player1 = null;
-        ServerHandler player2 = null;
-        Thread player1Thread = null;
-        Thread player2Thread = null;
+    void addParticipant(ServerHandler handler) {
+        participants.add(handler);
+    }
 
+    /**
+     * Gets the players of the session
+     * 
+     * @return Handlers of all players in seat order
+     */
+    List<ServerHandler> getParticipants() {
+        return participants;
+    }
+
+    /**
+     * Ends the handshake without starting a game, for example when a name is refused
+     * Has no effect once the handshake is over
+     * 
+     * @param error Why the session cannot start
+     */
+    void failHandshake(Throwable error) {
+        handshake.completeExceptionally(error);
+    }
+
+    /**
+     * Finds the handler of a player
+     * 
+     * @param playerName Name of the player
+     * @return The player's handler, or null if no such player takes part
+     */
+    ServerHandler getParticipant(String playerName) {
+        for (ServerHandler participant : participants) {
+            if (playerName.equals(participant.playerName)) {
+                return participant;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes the AI players once no remote player is left at the table
+     * AI players never leave by themselves, so this ends sessions nobody watches.
+     * Must run in the session mailbox.
+     */
+    void releaseAiPlayers() {
+        for (ServerHandler participant : participants) {
+            if (!participant.hasLeft() && !participant.isAutomated()) {
+                return;
+            }
+        }
+        for (ServerHandler participant : participants) {
+            if (!participant.hasLeft()) {
+                participant.closeConnection();
+            }
+        }
+    }
+
+    /**
+     * Sends a message to every participant still at the table except one
+     * The message is encoded once for all of them. Must run in the session mailbox.
+     * 
+     * @param message The message to send
+     * @param except Participant who does not receive it, or null
+     */
+    void broadcastMessage(CommonMessages message, ServerHandler except) {
+        ServerFrame frame = new ServerFrame(message);
+        for (ServerHandler participant : participants) {
+            if (participant != except && !participant.hasLeft()) {
+                participant.sendFrame(frame);
+            }
+        }
+    }
+
+    /**
+     * Sends the changes of the game state since the last broadcast to every participant
+     * The update is computed and encoded once. A full keyframe is sent when the tracker
+     * asks for one, or when a participant falls behind so that its backlog is conflated,
+     * and nothing is sent when no change happened. Must run in the session mailbox.
+     * 
+     * @param gameState The current game state
+     */
+    void broadcastGameState(CommonState gameState) {
+        for (ServerHandler participant : participants) {
+            if (!participant.hasLeft() && participant.isCongested()) {
+                stateTracker.reset();
+                break;
+            }
+        }
+        Object update = stateTracker.nextUpdate(gameState);
+        if (update == null) {
+            return;
+        }
+        ServerFrame frame = new ServerFrame(update);
+        for (ServerHandler participant : participants) {
+            if (!participant.hasLeft()) {
+                participant.sendUpdate(frame);
+            }
+        }
+    }
+
+    /**
+     * Starts a new game session for a table of players without blocking
+     * Sets up player handlers and starts the game in the session mailbox as soon as
+     * all players have sent their names. A player disconnecting first or sending a name
+     * that is refused ends the session at once; the shared scheduler ends it after
+     * JOIN_TIMEOUT_MILLIS.
+     * 
+     * @param connections Connections of the players, in seat order
+     */
+    public static void startSession(List<ServerConnection> connections) {
         try {
-            System.out.println("New match found! Starting session...");
-
-            // Create handlers for both players
-            player1 = new ServerHandler(s1, null);
-            player2 = new ServerHandler(s2, null);
-
-            // Set up opponent references
-            player1.setOpponent(player2);
-            player2.setOpponent(player1);
-
-            // Start player handler threads
-            player1Thread = new Thread(player1);
-            player2Thread = new Thread(player2);
-            player1Thread.start();
-            player2Thread.start();
-
-            // Set timeout for waiting player names
-            long startTime = System.currentTimeMillis();
-            long timeoutMillis = 30000;
-
-            // Wait for both players to send their names
-            while ((player1.playerName == null || player2.playerName == null)) {
-                // Check if player 1 disconnected
-                if (!player1Thread.isAlive() && player1.playerName == null) {
-                    System.out.println("Player 1 disconnected before sending name. Session terminated.");
-                    closeSocket(s2);
-                    return;
-                }
-                // Check if player 2 disconnected
-                if (!player2Thread.isAlive() && player2.playerName == null) {
-                    System.out.println("Player 2 disconnected before sending name. Session terminated.");
-                    closeSocket(s1);
-                    return;
-                }
-                // Check for timeout
-                if (System.currentTimeMillis() - startTime > timeoutMillis) {
-                    System.out.println("Timeout waiting for player names. Session terminated.");
-                    closeSocket(s1);
-                    closeSocket(s2);
-                    return;
-                }
-                System.out.println("Waiting for player names...");
-                Thread.sleep(200);
+            // Create handlers for all players, sharing one session for all game logic
+            ServerSession session = new ServerSession();
+            System.out.println("New match found! Starting session for " + connections.size() + " players with seed " + session.seed + "...");
+            for (ServerConnection connection : connections) {
+                session.addParticipant(new ServerHandler(connection, null, session));
             }
+            List<ServerHandler> players = session.participants;
 
-            // Initialize game state and assign to players
-            CommonState gameState = ServerManager.initializeGame(player1.playerName, player2.playerName);
-            player1.setGameState(gameState);
-            player2.setGameState(gameState);
+            // The handshake completes when all players joined, or fails with the first problem
+            CompletableFuture<Void> handshake = session.handshake;
+            CompletableFuture<?>[] joins = new CompletableFuture<?>[players.size()];
+            for (int i = 0; i < joins.length; i++) {
+                joins[i] = players.get(i).joined().whenComplete((name, e) -> {
+                    if (e != null) {
+                        handshake.completeExceptionally(e);
+                    }
+                });
+            }
+            CompletableFuture.allOf(joins).thenRun(() -> handshake.complete(null));
+            ScheduledFuture<?> timeout = ServerExecutors.schedule(
+                    () -> handshake.completeExceptionally(new TimeoutException("Timeout waiting for player names")),
+                    JOIN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+            handshake.whenComplete((ignored, error) -> {
+                timeout.cancel(false);
+                session.getMailbox().execute(() -> {
+                    if (error == null) {
+                        session.startGame();
+                    } else {
+                        session.abort(error instanceof TimeoutException);
+                    }
+                });
+            });
 
-            System.out.println("Game started between " + player1.playerName + " and " + player2.playerName);
-            System.out.println("First turn: " + gameState.getCurrentTurnPlayer());
+            // Start receiving messages from all players
+            for (ServerHandler player : players) {
+                player.start();
+            }
 
         } catch (Exception e) {
             System.err.println("Error starting session: " + e.getMessage());
 
             // Clean up connections on error
-            closeSocket(s1);
-            closeSocket(s2);
+            for (ServerConnection connection : connections) {
+                connection.close();
+            }
         }
     }
 
     /**
-     * Safely closes a socket connection
+     * Initializes the game state and sends it to all players
+     * Must run in the session mailbox
+     */
+    private void startGame() {
+        List<String> names = new ArrayList<>();
+        for (ServerHandler participant : participants) {
+            names.add(participant.playerName);
+        }
+        CommonState gameState = ServerManager.initializeGame(names, random);
+        for (ServerHandler participant : participants) {
+            participant.setGameState(gameState);
+        }
+        broadcastGameState(gameState);
+
+        System.out.println("Game started between " + String.join(", ", names) + " (seed " + seed + ")");
+        System.out.println("First turn: " + gameState.getCurrentTurnPlayer());
+    }
+
+    /**
+     * Ends a session whose handshake failed
+     * Only the players who caused it are lost: everyone else still connected goes back
+     * to matchmaking, except on a timeout those who never sent their name.
+     * Must run in the session mailbox
      * 
-     * @param socket The socket to close
+     * @param timedOut Whether the session gave up waiting for names
      */
-    private static void closeSocket(Socket socket) {
-        if (socket != null && !socket.isClosed()) {
-            try {
-                socket.close();
-            } catch (IOException ex) {
-                System.err.println("Error closing socket: " + ex.getMessage());
+    private void abort(boolean timedOut) {
+        for (int i = 0; i < participants.size(); i++) {
+            if (participants.get(i).joined().isCompletedExceptionally()) {
+                System.out.println("Player " + (i + 1) + " left or was refused before the game started. Session terminated.");
+            }
+        }
+        if (timedOut) {
+            System.out.println("Timeout waiting for player names. Session terminated.");
+        }
+        for (ServerHandler participant : participants) {
+            if (participant.canRequeue(timedOut)) {
+                participant.requeue();
+            } else {
+                participant.closeConnection();
             }
         }
     }
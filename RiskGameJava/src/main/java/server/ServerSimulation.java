@@ -0,0 +1,187 @@
+/**
+ * ServerSimulation.java
+ * This is the entry point of the rules throughput benchmark.
+ * It plays complete games between CommonBot players on all cores, using the same
+ * game setup as ServerManager and the same CommonRules as ServerHandler but without
+ * any connection, and reports games and moves per second, the average game length
+ * and the allocation rate. Every game is seeded from its number, so a run is
+ * repeatable for a given seed no matter how many threads play it.
+ *
+ * Usage: ServerSimulation [games] [players] [threads] [seed]
+ * With -Drisk.sim.minGamesPerSecond=N the process exits with status 1 if fewer
+ * games per second were played, so it can serve as a regression gate.
+ */
+
+package server;
+
+import common.CommonBot;
+import common.CommonEvent;
+import common.CommonMessages;
+import common.CommonPlayer;
+import common.CommonRules;
+import common.CommonState;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+public class ServerSimulation {
+    /** Moves after which a game is abandoned as unfinished */
+    private static final int MAX_MOVES = 20_000;
+    /** Thread bean with per-thread allocation counters, or null if the JVM has none */
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final LongAdder games = new LongAdder();          // Games played
+    private final LongAdder unfinished = new LongAdder();     // Games abandoned after MAX_MOVES
+    private final LongAdder moves = new LongAdder();          // Moves applied
+    private final LongAdder turns = new LongAdder();          // Turns passed
+    private final LongAdder allocated = new LongAdder();      // Bytes allocated while playing
+
+    /**
+     * Main method that runs the benchmark
+     *
+     * @param args Number of games (default 10000), players per game (default 2),
+     *             threads (default all cores) and base seed (default 1)
+     */
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int gameCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        players = Math.max(2, Math.min(CommonPlayer.MAX_PLAYERS, players));
+
+        System.out.println("Simulating " + gameCount + " games of " + players + " players on " + threads + " threads, seed " + seed);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // Warm up the JIT with a separate set of games
+            new ServerSimulation().run(pool, Math.max(1, gameCount / 10), players, seed + gameCount);
+
+            ServerSimulation simulation = new ServerSimulation();
+            long start = System.nanoTime();
+            simulation.run(pool, gameCount, players, seed);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            double gamesPerSecond = simulation.report(elapsed);
+            double minimum = Double.parseDouble(System.getProperty("risk.sim.minGamesPerSecond", "0"));
+            if (gamesPerSecond < minimum) {
+                System.out.printf("FAILED: %.0f games/s is below the required %.0f%n", gamesPerSecond, minimum);
+                System.exit(1);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays a number of games in parallel
+     *
+     * @param pool Pool that plays the games
+     * @param gameCount Number of games
+     * @param players Players per game
+     * @param seed Seed of the first game; game i uses seed + i
+     */
+    private void run(ForkJoinPool pool, int gameCount, int players, long seed) throws InterruptedException, ExecutionException {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            names.add("bot" + i);
+        }
+        pool.submit(() -> IntStream.range(0, gameCount).parallel().forEach(game -> play(names, seed + game))).get();
+    }
+
+    /**
+     * Plays one game to the end and records its measurements
+     *
+     * @param names Player names in seat order
+     * @param seed Seed of the game
+     */
+    private void play(List<String> names, long seed) {
+        long allocatedBefore = allocatedBytes();
+
+        SplittableRandom rng = new SplittableRandom(seed);
+        CommonState state = ServerManager.initializeGame(names, rng);
+        CommonBot[] bots = new CommonBot[names.size()];
+        for (int i = 0; i < bots.length; i++) {
+            bots[i] = new CommonBot(false, rng.split());
+        }
+
+        List<CommonEvent> events = new ArrayList<>();
+        int gameMoves = 0;
+        int gameTurns = 0;
+        boolean won = false;
+        while (!won && gameMoves < MAX_MOVES) {
+            int player = state.getCurrentTurn();
+            CommonMessages move = bots[player].nextMove(state, player);
+            events.clear();
+            CommonRules.applyInPlace(state, player, move, rng, events);
+            gameMoves++;
+            for (CommonEvent event : events) {
+                if (event instanceof CommonEvent.TurnPassed) {
+                    gameTurns++;
+                } else if (event instanceof CommonEvent.GameWon) {
+                    won = true;
+                }
+            }
+        }
+
+        games.increment();
+        if (!won) {
+            unfinished.increment();
+        }
+        moves.add(gameMoves);
+        turns.add(gameTurns);
+        allocated.add(allocatedBytes() - allocatedBefore);
+    }
+
+    /**
+     * Prints the results of a run
+     *
+     * @param elapsed Duration of the run in seconds
+     * @return Games played per second
+     */
+    private double report(double elapsed) {
+        long gameCount = games.sum();
+        long moveCount = moves.sum();
+        double gamesPerSecond = gameCount / elapsed;
+
+        System.out.println("=== Simulation summary ===");
+        System.out.printf("Games: %d in %.2fs, %.0f games/s (%d unfinished)%n", gameCount, elapsed, gamesPerSecond, unfinished.sum());
+        System.out.printf("Moves: %d, %.0f moves/s%n", moveCount, moveCount / elapsed);
+        System.out.printf("Average game: %.1f moves, %.1f turns%n", (double) moveCount / gameCount, (double) turns.sum() / gameCount);
+        if (THREADS != null) {
+            long bytes = allocated.sum();
+            System.out.printf("Allocation: %.1f MB/s, %.0f bytes/move%n", bytes / elapsed / (1 << 20), (double) bytes / moveCount);
+        } else {
+            System.out.println("Allocation: not measured by this JVM");
+        }
+        return gamesPerSecond;
+    }
+
+    /**
+     * Gets the bytes allocated so far by the current thread
+     *
+     * @return Allocated bytes, or 0 if not measured
+     */
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Gets the thread bean if it can count allocations
+     *
+     * @return The thread bean, or null if allocations cannot be counted
+     */
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * ServerSocketConnection.java
+ * This class implements a player connection on top of a blocking java.net.Socket.
+ * Incoming frames are read, and outgoing frames written, by two dedicated tasks per
+ * connection, which run on platform or virtual threads depending on ServerExecutors
+ * configuration. Senders only queue frames in the connection's ServerOutbound.
+ */
+
+package server;
+
+import common.CommonCodec;
+import common.CommonFrames;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ServerSocketConnection implements ServerConnection {
+    /** Logger for connection-level logging */
+    private static final Logger LOGGER = Logger.getLogger(ServerSocketConnection.class.getName());
+
+    private final Socket socket;                    // Player's socket connection
+    private final CommonCodec codec;                // Codec for frame payloads
+    private final DataInputStream in;               // Input stream for receiving frames
+    private final DataOutputStream out;             // Output stream for sending frames
+    private final ServerOutbound outbound = new ServerOutbound();  // Frames waiting for the writer task
+    private volatile Listener listener;             // Receiver of decoded messages
+    private boolean reading = false;                // Whether the reader and writer tasks were started
+
+    /**
+     * Constructor for ServerSocketConnection
+     *
+     * @param socket Accepted socket of the player
+     * @param codec Codec for frame payloads
+     */
+    public ServerSocketConnection(Socket socket, CommonCodec codec) throws IOException {
+        this.socket = socket;
+        this.codec = codec;
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    @Override
+    public synchronized void open(Listener listener) {
+        this.listener = listener;
+        if (!reading) {
+            reading = true;
+            ServerExecutors.execute(this::readLoop);
+            ServerExecutors.execute(this::writeLoop);
+        }
+    }
+
+    /**
+     * Reads frames until the socket is closed and forwards them to the listener
+     */
+    private void readLoop() {
+        try {
+            while (true) {
+                Object message = CommonFrames.readFrame(in, codec);
+                listener.onMessage(message);
+            }
+        } catch (IOException e) {
+            String reason = e.getMessage() != null ? e.getMessage() : "Player left the game";
+            close();
+            listener.onDisconnect(reason);
+        } catch (RuntimeException | Error e) {
+            LOGGER.log(Level.SEVERE, "Error handling message from " + getRemoteAddress(), e);
+            close();
+            listener.onDisconnect("Protocol error");
+        }
+    }
+
+    /**
+     * Writes queued frames until the connection is closed
+     * The stream is flushed whenever the queue runs empty. The socket is closed when
+     * the queue is, which only leaves frames to write after flushAndClose.
+     */
+    private void writeLoop() {
+        try {
+            ByteBuffer frame;
+            while ((frame = outbound.take()) != null) {
+                out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+                if (outbound.isEmpty()) {
+                    out.flush();
+                }
+            }
+            close();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error sending to " + getRemoteAddress() + ": " + e.getMessage());
+            close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void send(ServerFrame frame) {
+        boolean queued;
+        try {
+            queued = outbound.offer(frame.encode(codec), frame.getKind());
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error encoding message for " + getRemoteAddress() + ": " + e.getMessage());
+            return;
+        }
+        if (!queued && !outbound.isClosed()) {
+            LOGGER.warning("Outbound queue of " + getRemoteAddress() + " overflowed, closing connection");
+            close();
+        }
+    }
+
+    @Override
+    public boolean isCongested() {
+        return outbound.isCongested();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !socket.isClosed();
+    }
+
+    @Override
+    public void close() {
+        outbound.close();
+        if (!socket.isClosed()) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error closing socket " + getRemoteAddress() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void flushAndClose() {
+        outbound.closeWhenDrained();
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return String.valueOf(socket.getInetAddress());
+    }
+}
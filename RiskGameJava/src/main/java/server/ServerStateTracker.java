@@ -0,0 +1,95 @@
+/**
+ * ServerStateTracker.java
+ * This class tracks what one client last received of a game state, so that after
+ * each move only the territories and players that changed are sent.
+ * A full CommonState keyframe is sent first, whenever the tracked state object changes
+ * (for example on a rematch), and after every KEYFRAME_INTERVAL deltas.
+ */
+
+package server;
+
+import common.CommonState;
+import common.CommonStateDelta;
+
+import java.util.Objects;
+
+public class ServerStateTracker {
+    /** Number of deltas sent between two full keyframes */
+    public static final int KEYFRAME_INTERVAL = 50;
+
+    private CommonState tracked;                // State the shadow copy belongs to
+    private int[] owners;                       // Owner ids as last sent
+    private int[] armies;                       // Army counts as last sent
+    private int[] reserves;                     // Available armies as last sent
+    private boolean[] turns;                    // Turn flags as last sent
+    private String currentTurnPlayer;           // Turn player as last sent
+    private int deltasSinceKeyframe;            // Deltas sent since the last keyframe
+
+    /**
+     * Computes the next update to send for a state
+     *
+     * @param state The current game state
+     * @return The full state for a keyframe, a delta, or null if nothing changed
+     */
+    public Object nextUpdate(CommonState state) {
+        if (state != tracked || deltasSinceKeyframe >= KEYFRAME_INTERVAL) {
+            return keyframe(state);
+        }
+        CommonStateDelta delta = new CommonStateDelta(state.getCurrentTurnPlayer(), state.getHash());
+        boolean changed = !Objects.equals(currentTurnPlayer, state.getCurrentTurnPlayer());
+        currentTurnPlayer = state.getCurrentTurnPlayer();
+        for (int i = 0; i < owners.length; i++) {
+            if (state.getArmies(i) != armies[i] || state.getOwnerId(i) != owners[i]) {
+                owners[i] = state.getOwnerId(i);
+                armies[i] = state.getArmies(i);
+                delta.addTerritory(new CommonStateDelta.TerritoryChange(i, owners[i], armies[i]));
+                changed = true;
+            }
+        }
+        for (int i = 0; i < reserves.length; i++) {
+            if (state.getReserve(i) != reserves[i] || state.isTurn(i) != turns[i]) {
+                reserves[i] = state.getReserve(i);
+                turns[i] = state.isTurn(i);
+                delta.addPlayer(new CommonStateDelta.PlayerChange(state.getPlayerName(i), reserves[i], turns[i]));
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return null;
+        }
+        deltasSinceKeyframe++;
+        return delta;
+    }
+
+    /**
+     * Forces the next update to be a full keyframe
+     */
+    public void reset() {
+        tracked = null;
+    }
+
+    /**
+     * Records a full snapshot of the state as the new shadow copy
+     *
+     * @param state The state being sent in full
+     * @return The state itself
+     */
+    private CommonState keyframe(CommonState state) {
+        tracked = state;
+        deltasSinceKeyframe = 0;
+        currentTurnPlayer = state.getCurrentTurnPlayer();
+        owners = new int[state.getTopology().getTerritoryCount()];
+        armies = new int[owners.length];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = state.getOwnerId(i);
+            armies[i] = state.getArmies(i);
+        }
+        reserves = new int[state.getPlayerCount()];
+        turns = new boolean[reserves.length];
+        for (int i = 0; i < reserves.length; i++) {
+            reserves[i] = state.getReserve(i);
+            turns[i] = state.isTurn(i);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * CommonBattleOddsTest.java
+ * Tests the battle odds against blitzes simulated with the rules' own dice, and
+ * checks that battles above the cached size get an estimate close to a smaller one.
+ */
+
+package common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommonBattleOddsTest {
+    private static final int BATTLES = 200_000;
+
+    @Test
+    void matchesSimulatedBlitzes() {
+        int[][] battles = {{2, 1, 1}, {5, 3, 1}, {10, 6, 1}, {10, 6, 3}, {8, 2, 5}, {20, 15, 7}};
+        SplittableRandom random = new SplittableRandom(11);
+        for (int[] battle : battles) {
+            int attackers = battle[0];
+            int defenders = battle[1];
+            int stopAt = battle[2];
+            int captures = 0;
+            long attackersLeft = 0;
+            long defendersLeft = 0;
+            for (int i = 0; i < BATTLES; i++) {
+                int[] left = blitz(attackers, defenders, stopAt, random);
+                captures += left[1] == 0 ? 1 : 0;
+                attackersLeft += left[0];
+                defendersLeft += left[1];
+            }
+            String name = attackers + " vs " + defenders + " stopping at " + stopAt;
+            int dice = CommonRules.MAX_ATTACK_DICE;
+            assertEquals((double) captures / BATTLES,
+                    CommonBattleOdds.captureProbability(attackers, defenders, dice, stopAt), 0.01, name);
+            assertEquals((double) attackersLeft / BATTLES,
+                    CommonBattleOdds.expectedAttackerArmies(attackers, defenders, dice, stopAt), 0.05, name);
+            assertEquals((double) defendersLeft / BATTLES,
+                    CommonBattleOdds.expectedDefenderArmies(attackers, defenders, dice, stopAt), 0.05, name);
+        }
+    }
+
+    @Test
+    void stoppingAtOneIsTheFullBattle() {
+        for (int dice = 1; dice <= CommonRules.MAX_ATTACK_DICE; dice++) {
+            assertEquals(CommonBattleOdds.captureProbability(12, 9, dice),
+                    CommonBattleOdds.captureProbability(12, 9, dice, 1));
+            assertEquals(CommonBattleOdds.expectedAttackerArmies(12, 9, dice),
+                    CommonBattleOdds.expectedAttackerArmies(12, 9, dice, 1));
+        }
+    }
+
+    @Test
+    void estimatesBattlesAboveTheCache() {
+        // Twice the cached size on both sides is estimated from the battle at half the size
+        double capture = CommonBattleOdds.captureProbability(1025, 900, 3);
+        assertEquals(CommonBattleOdds.captureProbability(513, 450, 3), capture, 1e-9);
+        assertEquals(CommonBattleOdds.expectedDefenderArmies(513, 450, 3) * 2,
+                CommonBattleOdds.expectedDefenderArmies(1025, 900, 3), 1e-6);
+        assertTrue(CommonBattleOdds.captureProbability(5000, 100, 3) > 0.99);
+        assertTrue(CommonBattleOdds.captureProbability(100, 5000, 3) < 0.01);
+    }
+
+    /**
+     * Fights a blitz the way CommonRules does
+     *
+     * @return Armies left in the attacking and defending territories, moved armies counted as left
+     */
+    private static int[] blitz(int attackers, int defenders, int stopAt, SplittableRandom random) {
+        while (attackers > stopAt && defenders > 0) {
+            int attackerDice = Math.min(CommonRules.MAX_ATTACK_DICE, attackers - 1);
+            int defenderDice = Math.min(CommonRules.MAX_DEFEND_DICE, defenders);
+            int roll = CommonCombat.roll(attackerDice, defenderDice, random);
+            int loss = CommonCombat.attackerLoss(attackerDice, defenderDice, roll);
+            attackers -= loss;
+            defenders -= Math.min(attackerDice, defenderDice) - loss;
+        }
+        return new int[] {attackers, defenders};
+    }
+}
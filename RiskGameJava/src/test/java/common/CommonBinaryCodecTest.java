@@ -0,0 +1,181 @@
+/**
+ * CommonBinaryCodecTest.java
+ * Tests that the binary codec round-trips every payload type and rejects malformed
+ * payloads with an IOException instead of failing in some other way.
+ */
+
+package common;
+
+import org.junit.jupiter.api.Test;
+import server.ServerManager;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommonBinaryCodecTest {
+    private final CommonBinaryCodec codec = CommonBinaryCodec.INSTANCE;
+
+    @Test
+    void roundTripsMessages() throws IOException {
+        CommonMessages move = new CommonMessages(CommonMessages.Type.ATTACK, "Alaska", "Kamchatka", 3);
+        CommonMessages decoded = (CommonMessages) decode(codec.encode(move));
+        assertEquals(move.getType(), decoded.getType());
+        assertEquals("Alaska", decoded.getFrom());
+        assertEquals("Kamchatka", decoded.getTo());
+        assertEquals(3, decoded.getArmyCount());
+
+        CommonMessages chat = new CommonMessages(CommonMessages.Type.COMMUNUCATON, "héllo ⚡");
+        assertEquals("héllo ⚡", ((CommonMessages) decode(codec.encode(chat))).getMessage());
+    }
+
+    @Test
+    void roundTripsTopologyAndState() throws IOException {
+        CommonState state = ServerManager.initializeGame(List.of("alice", "bob", "carol"), new SplittableRandom(7));
+        CommonTopology topology = (CommonTopology) decode(codec.encode(state.getTopology()));
+        assertSame(state.getTopology(), topology);
+
+        CommonState decoded = (CommonState) decode(codec.encode(state));
+        assertStatesEqual(state, decoded);
+    }
+
+    @Test
+    void roundTripsDeltas() throws IOException {
+        CommonStateDelta delta = new CommonStateDelta("bob", 42L);
+        delta.addTerritory(new CommonStateDelta.TerritoryChange(5, 1, 9));
+        delta.addTerritory(new CommonStateDelta.TerritoryChange(6, -1, 0));
+        delta.addPlayer(new CommonStateDelta.PlayerChange("alice", 3, false));
+
+        CommonStateDelta decoded = (CommonStateDelta) decode(codec.encode(delta));
+        assertEquals("bob", decoded.getCurrentTurnPlayer());
+        assertEquals(42L, decoded.getStateHash());
+        assertEquals(delta.getTerritories(), decoded.getTerritories());
+        assertEquals(delta.getPlayers(), decoded.getPlayers());
+    }
+
+    @Test
+    void rejectsUnknownTagsAndTruncation() throws IOException {
+        assertRejected(new byte[0]);
+        assertRejected(new byte[] {99});
+
+        byte[] state = codec.encode(ServerManager.initializeGame(List.of("alice", "bob"), new SplittableRandom(1)));
+        for (int length = 1; length < state.length; length++) {
+            assertRejected(Arrays.copyOf(state, length));
+        }
+    }
+
+    @Test
+    void rejectsCountsBeforeAllocating() {
+        // Topology with 2^32 - 1 continents, which decodes as a negative int
+        assertRejected(new byte[] {4, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+        // Topology with 2^31 - 1 continents
+        assertRejected(new byte[] {4, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        // Topology claiming more territories than the payload could hold
+        assertRejected(new byte[] {4, 0, (byte) 0xFF, 0x1F});
+        // Delta with a huge number of territory changes
+        assertRejected(new byte[] {3, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F});
+    }
+
+    @Test
+    void rejectsInvalidIndexes() {
+        // Delta changing territory 2^31 - 1
+        assertRejected(new byte[] {3, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0, 0, 0});
+        // Delta giving a territory to player 100
+        assertRejected(new byte[] {3, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 101, 0, 0});
+        // Message field naming territory 1000 of the standard map
+        assertRejected(new byte[] {1, 0, 2, (byte) 0xE8, 0x07, 0, 0, 0});
+    }
+
+    @Test
+    void rejectsInvalidArmyCounts() throws IOException {
+        CommonCodec server = codec.forServer();
+        for (int armyCount : new int[] {-50, -1, CommonBinaryCodec.MAX_ARMY_COUNT + 1, Integer.MAX_VALUE}) {
+            byte[] data = codec.encode(new CommonMessages(CommonMessages.Type.PLACE_ARMY, null, "Alaska", armyCount));
+            assertThrows(IOException.class, () -> decodeWith(server, data), "Army count " + armyCount);
+        }
+        byte[] data = codec.encode(new CommonMessages(CommonMessages.Type.PLACE_ARMY, null, "Alaska", CommonBinaryCodec.MAX_ARMY_COUNT));
+        assertEquals(CommonBinaryCodec.MAX_ARMY_COUNT, ((CommonMessages) decodeWith(server, data)).getArmyCount());
+    }
+
+    @Test
+    void serverSideOnlyDecodesMessages() throws IOException {
+        CommonCodec server = codec.forServer();
+        CommonMessages move = new CommonMessages(CommonMessages.Type.END_TURN);
+        assertEquals(CommonMessages.Type.END_TURN, ((CommonMessages) decodeWith(server, codec.encode(move))).getType());
+
+        CommonState state = ServerManager.initializeGame(List.of("alice", "bob"), new SplittableRandom(1));
+        assertThrows(IOException.class, () -> decodeWith(server, codec.encode(state)));
+        assertThrows(IOException.class, () -> decodeWith(server, codec.encode(new CommonStateDelta(null, 0))));
+
+        // A topology from a player is rejected before it can be registered
+        CommonTopology topology = new CommonTopology.Builder()
+                .addContinent("Island", 1)
+                .addTerritory("Rock", "Island")
+                .build();
+        assertThrows(IOException.class, () -> decodeWith(server, codec.encode(topology)));
+        assertNull(CommonTopology.forHash(topology.getHash()));
+    }
+
+    @Test
+    void decodesRandomBytesWithoutCrashing() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 20_000; i++) {
+            byte[] data = new byte[random.nextInt(1, 40)];
+            for (int j = 0; j < data.length; j++) {
+                data[j] = (byte) random.nextInt(256);
+            }
+            data[0] = (byte) random.nextInt(1, 5);
+            try {
+                codec.decode(data, 0, data.length);
+            } catch (IOException expected) {
+                // Malformed payloads must fail this way only
+            }
+        }
+    }
+
+    @Test
+    void deltaWithUnknownTerritoryIsNotApplied() {
+        CommonState state = ServerManager.initializeGame(List.of("alice", "bob"), new SplittableRandom(1));
+        long hash = state.getHash();
+        CommonStateDelta delta = new CommonStateDelta("alice", hash);
+        delta.addTerritory(new CommonStateDelta.TerritoryChange(state.getTopology().getTerritoryCount(), 0, 5));
+        assertFalse(delta.applyTo(state));
+        assertEquals(hash, state.getHash());
+    }
+
+    /**
+     * Checks that two states describe the same game
+     */
+    static void assertStatesEqual(CommonState expected, CommonState actual) {
+        assertEquals(expected.getHash(), actual.getHash());
+        assertEquals(expected.getPlayerCount(), actual.getPlayerCount());
+        assertEquals(expected.getCurrentTurn(), actual.getCurrentTurn());
+        for (int id = 0; id < expected.getPlayerCount(); id++) {
+            assertEquals(expected.getPlayerName(id), actual.getPlayerName(id));
+            assertEquals(expected.getPlayerColor(id), actual.getPlayerColor(id));
+            assertEquals(expected.getReserve(id), actual.getReserve(id));
+            assertEquals(expected.isTurn(id), actual.isTurn(id));
+            assertEquals(expected.getTerritoryCount(id), actual.getTerritoryCount(id));
+        }
+        for (int t = 0; t < expected.getTopology().getTerritoryCount(); t++) {
+            assertEquals(expected.getOwnerId(t), actual.getOwnerId(t));
+            assertEquals(expected.getArmies(t), actual.getArmies(t));
+        }
+    }
+
+    private Object decode(byte[] data) throws IOException {
+        return codec.decode(data, 0, data.length);
+    }
+
+    private static Object decodeWith(CommonCodec codec, byte[] data) throws IOException {
+        return codec.decode(data, 0, data.length);
+    }
+
+    private void assertRejected(byte[] data) {
+        assertThrows(IOException.class, () -> codec.decode(data, 0, data.length));
+    }
+}
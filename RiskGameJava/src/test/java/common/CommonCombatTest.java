@@ -0,0 +1,128 @@
+/**
+ * CommonCombatTest.java
+ * Tests the precomputed outcome tables against every roll of real dice, and checks
+ * that the faces shown for a roll agree with the losses read from the tables.
+ */
+
+package common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommonCombatTest {
+
+    @Test
+    void tablesHoldEveryRollOfRealDice() {
+        for (int attacker = 1; attacker <= CommonRules.MAX_ATTACK_DICE; attacker++) {
+            for (int defender = 1; defender <= CommonRules.MAX_DEFEND_DICE; defender++) {
+                String name = attacker + " vs " + defender + " dice";
+                int total = (int) Math.pow(6, attacker + defender);
+                int pairs = Math.min(attacker, defender);
+
+                // Throw every combination of faces, dice by dice
+                Map<String, Integer> thrown = new HashMap<>();
+                int[] losses = new int[pairs + 1];
+                for (int combination = 0; combination < total; combination++) {
+                    int[] attacking = new int[attacker];
+                    int[] defending = new int[defender];
+                    int rest = combination;
+                    for (int i = 0; i < attacker; i++, rest /= 6) {
+                        attacking[i] = rest % 6 + 1;
+                    }
+                    for (int i = 0; i < defender; i++, rest /= 6) {
+                        defending[i] = rest % 6 + 1;
+                    }
+                    losses[lossOf(descending(attacking), descending(defending))]++;
+                    thrown.merge(key(descending(attacking), descending(defending)), 1, Integer::sum);
+                }
+
+                // The rolls the tables can pick are exactly these throws, with the same losses
+                assertEquals(total, boundOfRoll(attacker, defender), name);
+                Map<String, Integer> tabled = new HashMap<>();
+                for (int roll = 0; roll < total; roll++) {
+                    int[] attacking = CommonCombat.attackerFaces(attacker, defender, roll);
+                    int[] defending = CommonCombat.defenderFaces(attacker, defender, roll);
+                    tabled.merge(key(attacking, defending), 1, Integer::sum);
+                }
+                assertEquals(thrown, tabled, name);
+                for (int loss = 0; loss <= pairs; loss++) {
+                    assertEquals((double) losses[loss] / total, CommonCombat.probability(attacker, defender, loss), 1e-12,
+                            name + ", attacker losing " + loss);
+                }
+            }
+        }
+    }
+
+    @Test
+    void facesMatchTheSampledLoss() {
+        SplittableRandom random = new SplittableRandom(21);
+        for (int attacker = 1; attacker <= CommonRules.MAX_ATTACK_DICE; attacker++) {
+            for (int defender = 1; defender <= CommonRules.MAX_DEFEND_DICE; defender++) {
+                for (int i = 0; i < 10_000; i++) {
+                    int roll = CommonCombat.roll(attacker, defender, random);
+                    int[] attacking = CommonCombat.attackerFaces(attacker, defender, roll);
+                    int[] defending = CommonCombat.defenderFaces(attacker, defender, roll);
+                    int loss = CommonCombat.attackerLoss(attacker, defender, roll);
+                    assertEquals(lossOf(attacking, defending), loss,
+                            Arrays.toString(attacking) + " vs " + Arrays.toString(defending));
+                    assertEquals(Math.min(attacker, defender) - loss, CommonCombat.defenderLoss(attacker, defender, roll));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of rolls CommonCombat.roll picks from
+     */
+    private static int boundOfRoll(int attacker, int defender) {
+        int[] bound = new int[1];
+        CommonCombat.roll(attacker, defender, new RandomGenerator() {
+            @Override
+            public long nextLong() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int nextInt(int n) {
+                bound[0] = n;
+                return 0;
+            }
+        });
+        return bound[0];
+    }
+
+    /**
+     * Counts the attacker's losses the way the rules do: highest dice paired, ties to the defender
+     */
+    private static int lossOf(int[] attacking, int[] defending) {
+        int loss = 0;
+        for (int i = 0; i < Math.min(attacking.length, defending.length); i++) {
+            if (attacking[i] <= defending[i]) {
+                loss++;
+            }
+        }
+        return loss;
+    }
+
+    private static int[] descending(int[] faces) {
+        int[] sorted = faces.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length / 2; i++) {
+            int swap = sorted[i];
+            sorted[i] = sorted[sorted.length - 1 - i];
+            sorted[sorted.length - 1 - i] = swap;
+        }
+        return sorted;
+    }
+
+    private static String key(int[] attacking, int[] defending) {
+        return Arrays.toString(attacking) + Arrays.toString(defending);
+    }
+}
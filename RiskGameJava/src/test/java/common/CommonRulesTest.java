@@ -0,0 +1,105 @@
+/**
+ * CommonRulesTest.java
+ * Tests that the rules engine rejects army counts that are zero or negative, and
+ * that a captured territory is never left without armies.
+ */
+
+package common;
+
+import org.junit.jupiter.api.Test;
+import server.ServerManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommonRulesTest {
+    private final SplittableRandom random = new SplittableRandom(3);
+
+    @Test
+    void rejectsPlacingNoArmies() {
+        CommonState state = ServerManager.initializeGame(List.of("alice", "bob"), new SplittableRandom(1));
+        int player = state.getCurrentTurn();
+        int to = firstOwned(state, player);
+        state.setReserve(player, 20);
+        long hash = state.getHash();
+
+        for (int requested : new int[] {0, -50}) {
+            List<CommonEvent> events = new ArrayList<>();
+            CommonRules.placeArmies(state, player, to, requested, events);
+            assertInstanceOf(CommonEvent.Rejected.class, events.get(0), "Placing " + requested);
+            assertEquals(20, state.getReserve(player));
+            assertEquals(hash, state.getHash());
+        }
+    }
+
+    @Test
+    void rejectsAttackingWithNoArmies() {
+        CommonState state = ServerManager.initializeGame(List.of("alice", "bob"), new SplittableRandom(1));
+        int player = state.getCurrentTurn();
+        int[] battle = firstBattle(state, player);
+        state.setArmies(battle[0], 10);
+        state.setArmies(battle[1], 1);
+        long hash = state.getHash();
+
+        for (int armyCount : new int[] {0, -5}) {
+            List<CommonEvent> events = new ArrayList<>();
+            CommonRules.attack(state, player, battle[0], battle[1], armyCount, random, events);
+            assertEquals(1, events.size(), "Attacking with " + armyCount);
+            assertInstanceOf(CommonEvent.Rejected.class, events.get(0), "Attacking with " + armyCount);
+            assertEquals(hash, state.getHash());
+        }
+    }
+
+    @Test
+    void capturedTerritoriesKeepTheSurvivingDice() {
+        int captures = 0;
+        for (int seed = 0; captures < 50; seed++) {
+            CommonState state = ServerManager.initializeGame(List.of("alice", "bob"), new SplittableRandom(seed));
+            int player = state.getCurrentTurn();
+            int[] battle = firstBattle(state, player);
+            state.setArmies(battle[0], 4);
+            state.setArmies(battle[1], 1);
+
+            List<CommonEvent> events = new ArrayList<>();
+            CommonRules.attack(state, player, battle[0], battle[1], 3, random, events);
+            if (state.ownsTerritory(player, battle[1])) {
+                // Three dice against one lose nothing when they capture, so all three move in
+                assertEquals(3, state.getArmies(battle[1]));
+                assertEquals(1, state.getArmies(battle[0]));
+                captures++;
+            }
+            assertTrue(state.getArmies(battle[0]) >= 1);
+            assertTrue(state.getArmies(battle[1]) >= 1);
+        }
+    }
+
+    private static int firstOwned(CommonState state, int player) {
+        for (int t = 0; t < state.getTopology().getTerritoryCount(); t++) {
+            if (state.ownsTerritory(player, t)) {
+                return t;
+            }
+        }
+        throw new AssertionError("Player owns no territory");
+    }
+
+    /**
+     * @return An owned territory and a neighbouring enemy territory
+     */
+    private static int[] firstBattle(CommonState state, int player) {
+        CommonTopology topology = state.getTopology();
+        for (int from = 0; from < topology.getTerritoryCount(); from++) {
+            if (!state.ownsTerritory(player, from)) {
+                continue;
+            }
+            for (int to : topology.getAdjacent(from)) {
+                if (!state.ownsTerritory(player, to)) {
+                    return new int[] {from, to};
+                }
+            }
+        }
+        throw new AssertionError("Player has no border");
+    }
+}
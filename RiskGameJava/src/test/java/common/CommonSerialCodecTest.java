@@ -0,0 +1,42 @@
+/**
+ * CommonSerialCodecTest.java
+ * Tests that the serialization codec round-trips payloads and that its server-side
+ * variant only deserializes the messages players send.
+ */
+
+package common;
+
+import org.junit.jupiter.api.Test;
+import server.ServerManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommonSerialCodecTest {
+    private final CommonSerialCodec codec = CommonSerialCodec.INSTANCE;
+
+    @Test
+    void roundTripsState() throws IOException {
+        CommonState state = ServerManager.initializeGame(List.of("alice", "bob"), new SplittableRandom(5));
+        byte[] data = codec.encode(state);
+        CommonBinaryCodecTest.assertStatesEqual(state, (CommonState) codec.decode(data, 0, data.length));
+    }
+
+    @Test
+    void serverSideOnlyDecodesMessages() throws IOException {
+        CommonCodec server = codec.forServer();
+        byte[] move = codec.encode(new CommonMessages(CommonMessages.Type.FORTIFY, "Alaska", "Alberta", 2));
+        CommonMessages decoded = (CommonMessages) server.decode(move, 0, move.length);
+        assertEquals("Alberta", decoded.getTo());
+        assertEquals(2, decoded.getArmyCount());
+
+        byte[] state = codec.encode(ServerManager.initializeGame(List.of("alice", "bob"), new SplittableRandom(5)));
+        assertThrows(IOException.class, () -> server.decode(state, 0, state.length));
+        byte[] list = codec.encode(new ArrayList<>(List.of("a", "b")));
+        assertThrows(IOException.class, () -> server.decode(list, 0, list.length));
+    }
+}
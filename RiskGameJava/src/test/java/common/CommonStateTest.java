@@ -0,0 +1,64 @@
+/**
+ * CommonStateTest.java
+ * Tests that the incrementally updated Zobrist hash always equals the hash computed
+ * from scratch, through whole games played with the rules engine.
+ */
+
+package common;
+
+import org.junit.jupiter.api.Test;
+import server.ServerManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommonStateTest {
+    private static final int MAX_MOVES = 20_000;
+
+    @Test
+    void hashMatchesFullRecomputeThroughAGame() {
+        for (int players = 2; players <= 4; players++) {
+            SplittableRandom random = new SplittableRandom(players);
+            List<String> names = List.of("alice", "bob", "carol", "dave").subList(0, players);
+            CommonState state = ServerManager.initializeGame(names, random);
+            CommonBot bot = new CommonBot(false, new SplittableRandom(players * 31L));
+            assertEquals(state.computeHash(), state.getHash(), "After the deal");
+
+            boolean won = false;
+            for (int move = 0; move < MAX_MOVES && !won; move++) {
+                int player = state.getCurrentTurn();
+                List<CommonEvent> events = new ArrayList<>();
+                // Now and then a player leaves, which neutralizes their territories
+                if (players > 2 && move == 500) {
+                    CommonRules.leave(state, player, events);
+                } else {
+                    CommonRules.applyInPlace(state, player, bot.nextMove(state, player), random, events);
+                }
+                assertEquals(state.computeHash(), state.getHash(), "After move " + move);
+                won = events.stream().anyMatch(e -> e instanceof CommonEvent.GameWon);
+            }
+            assertTrue(won, "Game did not finish");
+        }
+    }
+
+    @Test
+    void undoingChangesRestoresTheHash() {
+        CommonState state = ServerManager.initializeGame(List.of("alice", "bob"), new SplittableRandom(2));
+        long hash = state.getHash();
+        int owner = state.getOwnerId(3);
+        int armies = state.getArmies(3);
+
+        state.setArmies(3, armies + 7);
+        state.setOwner(3, 1 - owner);
+        assertNotEquals(hash, state.getHash());
+        assertEquals(state.computeHash(), state.getHash());
+
+        state.setOwner(3, owner);
+        state.setArmies(3, armies);
+        assertEquals(hash, state.getHash());
+        assertEquals(hash, state.copy().getHash());
+    }
+}
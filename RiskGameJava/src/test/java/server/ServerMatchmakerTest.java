@@ -0,0 +1,95 @@
+/**
+ * ServerMatchmakerTest.java
+ * Tests that waiting players are seated together and that a player who floods the
+ * queue with messages is held to their JOIN alone.
+ */
+
+package server;
+
+import common.CommonMessages;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerMatchmakerTest {
+
+    @Test
+    void keepsOnlyTheJoinWhileWaiting() throws Exception {
+        CompletableFuture<List<ServerConnection>> table = new CompletableFuture<>();
+        ServerMatchmaker matchmaker = new ServerMatchmaker(2, table::complete);
+
+        TestConnection flooder = new TestConnection();
+        matchmaker.enqueue(flooder);
+        for (int i = 0; i < 100_000; i++) {
+            flooder.listener.onMessage(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "spam " + i));
+            if (i == 500) {
+                flooder.listener.onMessage(new CommonMessages(CommonMessages.Type.JOIN, "alice"));
+            }
+        }
+        flooder.listener.onMessage(new CommonMessages(CommonMessages.Type.JOIN, "mallory"));
+
+        TestConnection other = new TestConnection();
+        matchmaker.enqueue(other);
+        other.listener.onMessage(new CommonMessages(CommonMessages.Type.JOIN, "bob"));
+
+        List<ServerConnection> seated = table.get(5, TimeUnit.SECONDS);
+        assertEquals(2, seated.size());
+        List<Object> received = new ArrayList<>();
+        seated.get(0).open(new ServerConnection.Listener() {
+            @Override
+            public void onMessage(Object message) {
+                received.add(message);
+            }
+
+            @Override
+            public void onDisconnect(String reason) {
+            }
+        });
+        assertEquals(1, received.size(), "Only the JOIN is kept");
+        assertEquals("alice", ((CommonMessages) received.get(0)).getMessage());
+    }
+
+    /**
+     * A connection whose messages the test delivers by hand
+     */
+    private static final class TestConnection implements ServerConnection {
+        private volatile Listener listener;
+
+        @Override
+        public void open(Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void send(ServerFrame frame) {
+        }
+
+        @Override
+        public boolean isCongested() {
+            return false;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void flushAndClose() {
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return "test";
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * ServerNioTransportTest.java
+ * Tests that the selector transport closes a connection whose frames cannot be
+ * handled and keeps serving the other connections on the same I/O thread, and that
+ * flushAndClose writes everything queued before closing.
+ */
+
+package server;
+
+import common.CommonBinaryCodec;
+import common.CommonCodec;
+import common.CommonFrames;
+import common.CommonMessages;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerNioTransportTest {
+    private static final int NOTICES = 100;
+    private final CommonCodec codec = CommonBinaryCodec.INSTANCE;
+    private final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> disconnects = new LinkedBlockingQueue<>();
+
+    @Test
+    void failingFramesCloseOnlyTheirConnection() throws Exception {
+        int port = startServer();
+        try (Socket bad = new Socket("localhost", port); Socket good = new Socket("localhost", port)) {
+            bad.setSoTimeout(5_000);
+            DataOutputStream badOut = new DataOutputStream(bad.getOutputStream());
+
+            // The listener throws on EXIT_GAME; the connection must be closed
+            CommonFrames.writeFrame(badOut, codec, new CommonMessages(CommonMessages.Type.EXIT_GAME));
+            badOut.flush();
+            assertEquals("Protocol error", disconnects.poll(5, TimeUnit.SECONDS));
+            assertEquals(-1, new DataInputStream(bad.getInputStream()).read());
+
+            // The other connection on the same I/O thread still works
+            DataOutputStream goodOut = new DataOutputStream(good.getOutputStream());
+            CommonFrames.writeFrame(goodOut, codec, new CommonMessages(CommonMessages.Type.END_TURN));
+            goodOut.flush();
+            Object message = received.poll(5, TimeUnit.SECONDS);
+            assertInstanceOf(CommonMessages.class, message);
+            assertEquals(CommonMessages.Type.END_TURN, ((CommonMessages) message).getType());
+        }
+    }
+
+    @Test
+    void serverPayloadsFromPlayersCloseTheConnection() throws Exception {
+        int port = startServer();
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(5_000);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            CommonFrames.writeFrame(out, codec, common.CommonMapCreation.standardTopology());
+            out.flush();
+            assertNotNull(disconnects.poll(5, TimeUnit.SECONDS));
+            assertEquals(-1, new DataInputStream(socket.getInputStream()).read());
+            assertTrue(received.isEmpty());
+        }
+    }
+
+    @Test
+    void flushAndCloseWritesQueuedFramesFirst() throws Exception {
+        int port = startServer();
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(5_000);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            // The listener answers PLAY_AGAIN with notices, then closes and sends one more
+            CommonFrames.writeFrame(out, codec, new CommonMessages(CommonMessages.Type.PLAY_AGAIN));
+            out.flush();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            for (int i = 0; i < NOTICES; i++) {
+                CommonMessages notice = (CommonMessages) CommonFrames.readFrame(in, codec);
+                assertEquals("Notice " + i, notice.getMessage());
+            }
+            assertEquals(-1, in.read());
+            assertEquals("Connection closed by server", disconnects.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Starts a transport with a single I/O thread on a free port
+     *
+     * @return The port
+     */
+    private int startServer() throws IOException {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        ServerNioTransport transport = new ServerNioTransport(1, codec.forServer());
+        Thread acceptor = new Thread(() -> {
+            try {
+                transport.serve(port, connection -> connection.open(new ServerConnection.Listener() {
+                    @Override
+                    public void onMessage(Object message) {
+                        if (((CommonMessages) message).getType() == CommonMessages.Type.EXIT_GAME) {
+                            throw new IllegalStateException("Listener failure");
+                        }
+                        if (((CommonMessages) message).getType() == CommonMessages.Type.PLAY_AGAIN) {
+                            for (int i = 0; i < NOTICES; i++) {
+                                connection.send(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Notice " + i));
+                            }
+                            connection.flushAndClose();
+                            connection.send(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "Dropped"));
+                            return;
+                        }
+                        received.add(message);
+                    }
+
+                    @Override
+                    public void onDisconnect(String reason) {
+                        disconnects.add(reason);
+                    }
+                }));
+            } catch (IOException e) {
+                // The test fails when it cannot connect
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try {
+                new Socket("localhost", port).close();
+                // Wait for the probe connection to be closed on the server too
+                assertNotNull(disconnects.poll(5, TimeUnit.SECONDS));
+                return port;
+            } catch (IOException | InterruptedException e) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        throw new IOException("Server did not start");
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * ServerOutboundTest.java
+ * Tests that a queued keyframe drops the waiting state frames but keeps every other
+ * frame in order, and that the queue refuses frames at its limit.
+ */
+
+package server;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerOutboundTest {
+
+    @Test
+    void keyframeDropsWaitingStatesButKeepsOrderedFrames() {
+        ServerOutbound outbound = new ServerOutbound();
+        assertTrue(outbound.offer(frame(1), ServerOutbound.Kind.KEYFRAME));
+        assertTrue(outbound.offer(frame(2), ServerOutbound.Kind.ORDERED));
+        assertTrue(outbound.offer(frame(3), ServerOutbound.Kind.DELTA));
+        assertTrue(outbound.offer(frame(4), ServerOutbound.Kind.ORDERED));
+        assertTrue(outbound.offer(frame(5), ServerOutbound.Kind.DELTA));
+        assertTrue(outbound.offer(frame(6), ServerOutbound.Kind.KEYFRAME));
+        assertTrue(outbound.offer(frame(7), ServerOutbound.Kind.DELTA));
+
+        assertEquals(List.of(2, 4, 6, 7), drain(outbound));
+        assertEquals(3, outbound.getConflatedCount());
+    }
+
+    @Test
+    void deltasAndOrderedFramesAreNeverDroppedByThemselves() {
+        ServerOutbound outbound = new ServerOutbound();
+        assertTrue(outbound.offer(frame(1), ServerOutbound.Kind.DELTA));
+        assertTrue(outbound.offer(frame(2), ServerOutbound.Kind.ORDERED));
+        assertTrue(outbound.offer(frame(3), ServerOutbound.Kind.DELTA));
+        assertEquals(List.of(1, 2, 3), drain(outbound));
+        assertEquals(0, outbound.getConflatedCount());
+    }
+
+    @Test
+    void refusesFramesAtTheLimit() {
+        ServerOutbound outbound = new ServerOutbound();
+        for (int i = 0; i < ServerOutbound.LIMIT; i++) {
+            assertTrue(outbound.offer(frame(i), i % 2 == 0 ? ServerOutbound.Kind.ORDERED : ServerOutbound.Kind.DELTA));
+        }
+        assertTrue(outbound.isCongested());
+        assertFalse(outbound.offer(frame(-1), ServerOutbound.Kind.ORDERED), "Ordered frame over the limit");
+        assertFalse(outbound.offer(frame(-1), ServerOutbound.Kind.DELTA), "Delta over the limit");
+
+        // A keyframe makes room by dropping the deltas
+        assertTrue(outbound.offer(frame(-2), ServerOutbound.Kind.KEYFRAME));
+        assertEquals(ServerOutbound.LIMIT / 2, outbound.getConflatedCount());
+    }
+
+    @Test
+    void refusesAKeyframeBehindOrderedFrames() {
+        ServerOutbound outbound = new ServerOutbound();
+        for (int i = 0; i < ServerOutbound.LIMIT; i++) {
+            assertTrue(outbound.offer(frame(i), ServerOutbound.Kind.ORDERED));
+        }
+        assertFalse(outbound.offer(frame(-1), ServerOutbound.Kind.KEYFRAME));
+        assertEquals(ServerOutbound.LIMIT, drain(outbound).size());
+    }
+
+    @Test
+    void refusesFramesOnceClosed() {
+        ServerOutbound outbound = new ServerOutbound();
+        assertTrue(outbound.offer(frame(1), ServerOutbound.Kind.ORDERED));
+        outbound.closeWhenDrained();
+        assertFalse(outbound.offer(frame(2), ServerOutbound.Kind.ORDERED));
+        assertEquals(List.of(1), drain(outbound));
+    }
+
+    private static ByteBuffer frame(int id) {
+        return ByteBuffer.allocate(4).putInt(0, id);
+    }
+
+    private static List<Integer> drain(ServerOutbound outbound) {
+        List<Integer> ids = new ArrayList<>();
+        ByteBuffer frame;
+        while ((frame = outbound.poll()) != null) {
+            ids.add(frame.getInt(0));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,309 @@
+/**
+ * ServerSessionTest.java
+ * Plays whole games through ServerSession and ServerHandler over loopback connections
+ * and checks what the players receive, including the state the game ended in.
+ */
+
+package server;
+
+import client.ClientConnection;
+import common.CommonBinaryCodec;
+import common.CommonBot;
+import common.CommonMessages;
+import common.CommonState;
+import common.CommonStateDelta;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerSessionTest {
+
+    @Test
+    void twoPlayerGameIsPlayedToAWin() throws Exception {
+        List<TestPlayer> players = playGame(List.of("alice", "bob"));
+
+        TestPlayer winner = null;
+        for (TestPlayer player : players) {
+            assertNull(player.failure, player.failure);
+            if (player.outcome == CommonMessages.Type.WIN) {
+                assertNull(winner, "Only one player wins");
+                winner = player;
+            } else {
+                assertEquals(CommonMessages.Type.LOSE, player.outcome);
+            }
+        }
+        assertNotNull(winner);
+
+        // The winner received the state in which they own every territory before the WIN message
+        CommonState state = winner.stateAtOutcome;
+        int id = state.indexOfPlayer(winner.name);
+        assertEquals(state.getTopology().getTerritoryCount(), state.getTerritoryCount(id));
+
+        // Closing a connection is reported to its own listener too
+        for (TestPlayer player : players) {
+            assertTrue(player.disconnected.await(5, TimeUnit.SECONDS), "No disconnect for " + player.name);
+        }
+    }
+
+    @Test
+    void fourPlayerGameIsPlayedToAWin() throws Exception {
+        List<TestPlayer> players = playGame(List.of("alice", "bob", "carol", "dave"));
+        long winners = players.stream().filter(p -> p.outcome == CommonMessages.Type.WIN).count();
+        assertEquals(1, winners);
+        for (TestPlayer player : players) {
+            assertNull(player.failure, player.failure);
+            assertNotNull(player.outcome);
+        }
+    }
+
+    @Test
+    void joinAfterHandshakeIsIgnored() throws Exception {
+        List<TestPlayer> players = seat(List.of("alice", "bob"));
+        // A second JOIN must neither rename alice nor take over bob's seat
+        players.get(0).connection.send(new CommonMessages(CommonMessages.Type.JOIN, "bob"));
+        players.get(0).connection.send(new CommonMessages(CommonMessages.Type.JOIN, "mallory"));
+        finish(players);
+        for (TestPlayer player : players) {
+            assertNull(player.failure, player.failure);
+            assertNotNull(player.outcome);
+            assertEquals(List.of("alice", "bob"), List.of(player.stateAtOutcome.getPlayerName(0), player.stateAtOutcome.getPlayerName(1)));
+        }
+    }
+
+    @Test
+    void duplicateNameOnlyRejectsThatPlayer() throws Exception {
+        List<TestPlayer> players = seat(List.of("alice", "alice"));
+        TestPlayer rejected = null;
+        for (long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10); rejected == null && System.nanoTime() < deadline; ) {
+            rejected = players.stream().filter(p -> p.lastNotice != null && p.lastNotice.contains("cannot be used")).findFirst().orElse(null);
+            Thread.sleep(10);
+        }
+        // Whichever JOIN came second is told why before the connection is closed
+        assertNotNull(rejected, "No player was told about the name");
+        assertTrue(rejected.disconnected.await(10, TimeUnit.SECONDS), "Rejected player was not disconnected");
+
+        // The other player waits for a new table with the name they joined with
+        TestPlayer kept = players.get(players.get(0) == rejected ? 1 : 0);
+        assertEquals(1, kept.disconnected.getCount(), "Other player was disconnected");
+        TestPlayer bob = new TestPlayer("bob", ServerLoopbackConnection.connect(), kept.over, 2, -1);
+        bob.connection.open(bob);
+        bob.connection.send(new CommonMessages(CommonMessages.Type.JOIN, bob.name));
+        finish(List.of(kept, bob));
+        assertNull(rejected.state, "No game may start at the first table");
+        for (TestPlayer player : List.of(kept, bob)) {
+            assertNull(player.failure, player.failure);
+            assertNotNull(player.outcome);
+            assertEquals(List.of("alice", "bob"), List.of(player.stateAtOutcome.getPlayerName(0), player.stateAtOutcome.getPlayerName(1)));
+        }
+    }
+
+    @Test
+    void resyncSendsTheCurrentState() throws Exception {
+        List<TestPlayer> players = seat(List.of("alice", "bob"), 10);
+        finish(players);
+        for (TestPlayer player : players) {
+            assertNull(player.failure, player.failure);
+            assertNotNull(player.outcome);
+            assertTrue(player.resynced, "No matching keyframe after RESYNC");
+        }
+    }
+
+    @Test
+    void loopbackReusesTheTransportEncoding() throws Exception {
+        List<ServerConnection> serverEnds = new ArrayList<>();
+        TestPlayer player = new TestPlayer("alice", ServerLoopbackConnection.connect(serverEnds::add), new CountDownLatch(1), 0, -1);
+        player.connection.open(player);
+
+        // A broadcast goes to network players and loopback players with the same encoding
+        ServerFrame frame = new ServerFrame(new CommonMessages(CommonMessages.Type.COMMUNUCATON, "hello"));
+        byte[] encoded = frame.encode(ServerLauncher.CODEC).array();
+        serverEnds.get(0).send(frame);
+        assertSame(encoded, frame.encode(ServerLauncher.CODEC).array(), "Frame was encoded again");
+        player.connection.close();
+    }
+
+    /**
+     * Seats players at a new session over loopback connections and plays until every player won or lost
+     *
+     * @param names Player names, in seat order
+     * @return The players once the game is over
+     */
+    private static List<TestPlayer> playGame(List<String> names) throws Exception {
+        List<TestPlayer> players = seat(names);
+        finish(players);
+        return players;
+    }
+
+    /**
+     * Seats players at a new session over loopback connections and sends their JOIN messages
+     *
+     * @param names Player names, in seat order
+     * @return The players, who play as soon as the game starts
+     */
+    private static List<TestPlayer> seat(List<String> names) throws IOException {
+        return seat(names, -1);
+    }
+
+    /**
+     * Seats players at a new session over loopback connections and sends their JOIN messages
+     *
+     * @param names Player names, in seat order
+     * @param resyncAfter Deltas after which every player asks for a keyframe, or -1
+     * @return The players, who play as soon as the game starts
+     */
+    private static List<TestPlayer> seat(List<String> names, int resyncAfter) throws IOException {
+        List<ServerConnection> serverEnds = new ArrayList<>();
+        List<TestPlayer> players = new ArrayList<>();
+        CountDownLatch over = new CountDownLatch(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            TestPlayer player = new TestPlayer(names.get(i), ServerLoopbackConnection.connect(serverEnds::add), over, i, resyncAfter);
+            player.connection.open(player);
+            players.add(player);
+        }
+        assertEquals(names.size(), serverEnds.size());
+
+        ServerSession.startSession(serverEnds);
+        for (TestPlayer player : players) {
+            player.connection.send(new CommonMessages(CommonMessages.Type.JOIN, player.name));
+        }
+        return players;
+    }
+
+    /**
+     * Waits until every player won or lost, then closes their connections
+     *
+     * @param players The players
+     */
+    private static void finish(List<TestPlayer> players) throws InterruptedException {
+        assertTrue(players.get(0).over.await(60, TimeUnit.SECONDS), "Game did not finish");
+        for (TestPlayer player : players) {
+            player.connection.close();
+        }
+    }
+
+    /**
+     * A headless player that tracks the game state from keyframes and deltas
+     * and plays the built-in bot's moves on its turn
+     * The bot chooses at random: scripted bots can repeat the same turns forever, and
+     * random bots can trade attacks forever. So after PASSIVE_AFTER moves a player ends
+     * its turns at once unless it is the lowest seat still in the game. The armies of
+     * passive players then only shrink while that seat keeps attacking with its
+     * reinforcements, so every game ends whatever the dice.
+     * A player may ask for a keyframe after some deltas, which must match its own state.
+     */
+    private static final class TestPlayer implements ClientConnection.Listener {
+        /** Moves after which the player stops placing and attacking, unless it leads the seat order */
+        private static final int PASSIVE_AFTER = 500;
+
+        private final String name;
+        private final ClientConnection connection;
+        private final CountDownLatch over;
+        private final CountDownLatch disconnected = new CountDownLatch(1);
+        private final CommonBot bot;
+        private final int resyncAfter;              // Deltas after which to ask for a keyframe, or -1
+        private CommonState state;
+        private long movedAt = -1;                  // State hash when the last move was sent
+        private int deltas;                         // Deltas received
+        private int moves;                          // Moves sent
+        private boolean resyncing;                  // Whether a keyframe was asked for
+        private volatile boolean resynced;          // Whether the keyframe asked for arrived and matched
+        private volatile String lastNotice;         // Text of the last chat message
+        private volatile CommonMessages.Type outcome;
+        private volatile CommonState stateAtOutcome;
+        private volatile String failure;
+
+        TestPlayer(String name, ClientConnection connection, CountDownLatch over, long seed, int resyncAfter) {
+            this.name = name;
+            this.resyncAfter = resyncAfter;
+            this.connection = connection;
+            this.over = over;
+            this.bot = new CommonBot(false, new SplittableRandom(seed));
+        }
+
+        @Override
+        public synchronized void onMessage(Object message) {
+            if (message instanceof CommonState keyframe) {
+                if (resyncing) {
+                    resyncing = false;
+                    resynced = sameState(state, keyframe);
+                }
+                state = keyframe;
+                play();
+            } else if (message instanceof CommonStateDelta delta) {
+                if (state == null) {
+                    failure = "Delta before the first keyframe";
+                } else if (!delta.applyTo(state)) {
+                    failure = "State diverged from the server";
+                } else if (++deltas == resyncAfter) {
+                    resyncing = true;
+                    send(new CommonMessages(CommonMessages.Type.RESYNC));
+                }
+                play();
+            } else if (message instanceof CommonMessages notice && notice.getType() == CommonMessages.Type.COMMUNUCATON) {
+                lastNotice = notice.getMessage();
+            } else if (message instanceof CommonMessages notice && outcome == null
+                    && (notice.getType() == CommonMessages.Type.WIN || notice.getType() == CommonMessages.Type.LOSE)) {
+                stateAtOutcome = state.copy();
+                outcome = notice.getType();
+                over.countDown();
+            }
+        }
+
+        @Override
+        public void onDisconnect(String reason) {
+            disconnected.countDown();
+        }
+
+        /**
+         * Sends the next move once the previous one changed the state
+         */
+        private void play() {
+            if (outcome != null || state == null || state.getCurrentTurn() != state.indexOfPlayer(name)
+                    || state.getHash() == movedAt) {
+                return;
+            }
+            movedAt = state.getHash();
+            int player = state.getCurrentTurn();
+            if (++moves > PASSIVE_AFTER && player != firstInGame(state)) {
+                send(new CommonMessages(CommonMessages.Type.END_TURN));
+            } else {
+                send(bot.nextMove(state, player));
+            }
+        }
+
+        /**
+         * @return Id of the lowest seat that still holds territories
+         */
+        private static int firstInGame(CommonState state) {
+            int id = 0;
+            while (state.getTerritoryCount(id) == 0) {
+                id++;
+            }
+            return id;
+        }
+
+        private void send(CommonMessages message) {
+            try {
+                connection.send(message);
+            } catch (IOException e) {
+                failure = e.getMessage();
+            }
+        }
+
+        private static boolean sameState(CommonState a, CommonState b) {
+            try {
+                return Arrays.equals(CommonBinaryCodec.INSTANCE.encode(a), CommonBinaryCodec.INSTANCE.encode(b));
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * ServerStateTrackerTest.java
+ * Tests that a client following a game only through the tracker's keyframes and
+ * deltas, each sent through the binary codec, always holds the server's state.
+ */
+
+package server;
+
+import common.CommonBinaryCodec;
+import common.CommonBot;
+import common.CommonEvent;
+import common.CommonRules;
+import common.CommonState;
+import common.CommonStateDelta;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerStateTrackerTest {
+    private static final int MAX_MOVES = 20_000;
+    private final CommonBinaryCodec codec = CommonBinaryCodec.INSTANCE;
+
+    @Test
+    void deltasRebuildTheKeyframes() throws IOException {
+        SplittableRandom random = new SplittableRandom(5);
+        CommonState state = ServerManager.initializeGame(List.of("alice", "bob", "carol"), random);
+        CommonBot bot = new CommonBot(false, new SplittableRandom(6));
+        ServerStateTracker tracker = new ServerStateTracker();
+
+        CommonState client = null;
+        int keyframes = 0;
+        int deltas = 0;
+        boolean won = false;
+        for (int move = 0; move < MAX_MOVES && !won; move++) {
+            List<CommonEvent> events = new ArrayList<>();
+            if (move > 0) {
+                int player = state.getCurrentTurn();
+                CommonRules.applyInPlace(state, player, bot.nextMove(state, player), random, events);
+            }
+            Object update = tracker.nextUpdate(state);
+            if (update instanceof CommonState) {
+                client = (CommonState) roundTrip(update);
+                keyframes++;
+            } else if (update instanceof CommonStateDelta) {
+                assertNotNull(client, "Delta before the first keyframe");
+                assertTrue(((CommonStateDelta) roundTrip(update)).applyTo(client), "Delta failed at move " + move);
+                deltas++;
+            }
+            // Both states encode to the same keyframe only if every field matches
+            assertArrayEquals(codec.encode(state), codec.encode(client), "States differ at move " + move);
+            won = events.stream().anyMatch(e -> e instanceof CommonEvent.GameWon);
+        }
+        assertTrue(won, "Game did not finish");
+        assertTrue(deltas > keyframes * (ServerStateTracker.KEYFRAME_INTERVAL - 1), "Mostly deltas are sent");
+    }
+
+    @Test
+    void resetForcesAKeyframe() {
+        CommonState state = ServerManager.initializeGame(List.of("alice", "bob"), new SplittableRandom(1));
+        ServerStateTracker tracker = new ServerStateTracker();
+        assertSame(state, tracker.nextUpdate(state));
+        assertNull(tracker.nextUpdate(state), "Nothing changed");
+        tracker.reset();
+        assertSame(state, tracker.nextUpdate(state));
+    }
+
+    private Object roundTrip(Object update) throws IOException {
+        byte[] data = codec.encode(update);
+        return codec.decode(data, 0, data.length);
+    }
+}